@@ -27,6 +27,9 @@ public class DataSeeder {
   @Transactional
   public void init() {
 
+    alignIdGenerator("perfumes", "perfumes");
+    alignIdGenerator("orders", "orders");
+    alignIdGenerator("order_items", "order_items");
     
     Long users = em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
     if (users == 0) {
@@ -86,6 +89,22 @@ public class DataSeeder {
     }
   }
 
+  /**
+   * Rows created while ids came from IDENTITY sit above a fresh table generator; start allocating after them.
+   * The value only ever moves up, so concurrent nodes starting together cannot hand out an id twice.
+   */
+  private void alignIdGenerator(String generator, String table) {
+    em.createNativeQuery("INSERT INTO id_generators (gen_name, gen_value) SELECT ?1, 0 "
+        + "WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE gen_name = ?2)")
+      .setParameter(1, generator)
+      .setParameter(2, generator)
+      .executeUpdate();
+    em.createNativeQuery("UPDATE id_generators SET gen_value = (SELECT COALESCE(MAX(id), 0) FROM " + table + ") "
+        + "WHERE gen_name = ?1 AND gen_value < (SELECT COALESCE(MAX(id), 0) FROM " + table + ")")
+      .setParameter(1, generator)
+      .executeUpdate();
+  }
+
   private Perfume perfume(
       String name,
       String brand,
@@ -0,0 +1,50 @@
+package com.parfumerie.config;
+
+/**
+ * Reads tunables from system properties (parfumerie.*) or environment variables (PARFUMERIE_*).
+ */
+public final class AppConfig {
+
+    private static final String PREFIX = "parfumerie.";
+
+    private AppConfig() {}
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(PREFIX + key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(toEnvName(key));
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid integer for " + PREFIX + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid long for " + PREFIX + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static String toEnvName(String key) {
+        return "PARFUMERIE_" + key.toUpperCase().replace('.', '_').replace('-', '_');
+    }
+}
@@ -0,0 +1,29 @@
+package com.parfumerie.config;
+
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.User;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Sizes the shared cache of Perfume and User from parfumerie.cache.* before parfumeriePU logs in.
+ */
+public class SharedCacheCustomizer implements SessionCustomizer {
+
+    @Override
+    public void customize(Session session) {
+        configure(session.getDescriptor(Perfume.class), "perfume", 5000, 600_000);
+        configure(session.getDescriptor(User.class), "user", 2000, 300_000);
+    }
+
+    private static void configure(ClassDescriptor descriptor, String name, int defaultSize, long defaultExpiryMs) {
+        if (descriptor == null) return;
+        int size = AppConfig.getInt("cache." + name + ".size", defaultSize);
+        long expiryMs = AppConfig.getLong("cache." + name + ".expiry-ms", defaultExpiryMs);
+        descriptor.useSoftCacheWeakIdentityMap();
+        descriptor.setIdentityMapSize(size);
+        descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(expiryMs));
+    }
+}
@@ -5,23 +5,36 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jakarta.json.bind.annotation.JsonbTransient;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 
 /**
  * Catalog entity for perfumes with pricing, stock, and availability.
  */
 @Entity
-@Table(name = "perfumes")
+@Cacheable
+@Table(name = "perfumes", indexes = {
+        @Index(name = "idx_perfumes_price_id", columnList = "price, id"),
+        @Index(name = "idx_perfumes_name_id", columnList = "name, id"),
+        @Index(name = "idx_perfumes_brand_price", columnList = "brand, price, id"),
+        @Index(name = "idx_perfumes_gender_type_price", columnList = "gender, type, price, id"),
+        @Index(name = "idx_perfumes_available_price", columnList = "available, price, id")
+})
 public class Perfume {
 
+    /** Table-allocated in blocks of 50 so inserts can be JDBC-batched (IDENTITY forces one round trip per row). */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "perfume_ids")
+    @TableGenerator(name = "perfume_ids", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "gen_value", pkColumnValue = "perfumes", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -41,6 +54,9 @@ public class Perfume {
 
     private String comment;
 
+    /** Checkout reserves this perfume's stock in the in-memory ledger; the column catches up by write-behind. */
+    private Boolean hotStock;
+
     @OneToMany(mappedBy = "perfume")
     @JsonbTransient
     private List<OrderItem> orderItems = new ArrayList<>();
@@ -91,6 +107,10 @@ public class Perfume {
         return comment;
     }
 
+    public Boolean getHotStock() {
+        return hotStock;
+    }
+
     public List<OrderItem> getOrderItems() {
         return orderItems;
     }
@@ -129,6 +149,9 @@ public class Perfume {
     public void setComment(String comment) {
         this.comment = comment;
     }
+    public void setHotStock(Boolean hotStock) {
+        this.hotStock = hotStock;
+    }
     
     
 }
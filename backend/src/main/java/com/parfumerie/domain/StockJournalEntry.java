@@ -0,0 +1,57 @@
+package com.parfumerie.domain;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A committed hot-SKU reservation not yet subtracted from perfumes.stock; written with the order, deleted by the flush.
+ */
+@Entity
+@Table(name = "stock_journal", indexes = {
+        @Index(name = "idx_stock_journal_perfume", columnList = "perfume_id")
+})
+public class StockJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "perfume_id", nullable = false)
+    private Long perfumeId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    private LocalDateTime createdAt;
+
+    public StockJournalEntry() {}
+
+    public StockJournalEntry(Long perfumeId, int quantity) {
+        this.perfumeId = perfumeId;
+        this.quantity = quantity;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPerfumeId() {
+        return perfumeId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
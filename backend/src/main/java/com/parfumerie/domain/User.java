@@ -12,6 +12,7 @@ import java.util.List;
  * User entity storing profile details and credential hash.
  */
 @Entity
+@Cacheable
 @Table(name = "users")
 public class User {
 
@@ -42,6 +43,10 @@ public class User {
     private Role role = Role.CLIENT; 
 
     
+    @JsonbTransient
+    private Long version;
+
+    
     @OneToMany(mappedBy = "user", cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     @JsonbTransient
     private List<Order> orders = new ArrayList<>();
@@ -57,6 +62,7 @@ public class User {
     }
 
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
 
     public String getFirstName() { return firstName; }
     public void setFirstName(String firstName) { this.firstName = firstName; }
@@ -79,6 +85,9 @@ public class User {
     public Role getRole() { return role; }
     public void setRole(Role role) { this.role = role; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public List<Order> getOrders() { return orders; }
     public void setOrders(List<Order> orders) { this.orders = orders; }
 }
@@ -8,7 +8,7 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 
 /**
- * Guards write operations on perfumes to the ADMIN role.
+ * Guards write operations on perfumes, and every /stats read, to the ADMIN role.
  */
 @Provider
 @Priority(Priorities.AUTHORIZATION)
@@ -16,13 +16,10 @@ public class AdminGuardFilter implements ContainerRequestFilter {
 
     @Override
     public void filter(ContainerRequestContext requestContext) {
-        String method = requestContext.getMethod();
-        if (!isWriteMethod(method)) {
-            return;
-        }
-
         String path = requestContext.getUriInfo().getPath();
-        if (!path.startsWith("perfumes")) {
+        boolean guarded = path.startsWith("stats")
+                || (path.startsWith("perfumes") && isWriteMethod(requestContext.getMethod()));
+        if (!guarded) {
             return;
         }
 
@@ -0,0 +1,33 @@
+package com.parfumerie.filter;
+
+import java.security.Principal;
+
+/**
+ * The caller set by {@link BasicAuthFilter}: named by email, but identified by user id, which never changes.
+ */
+public class AuthenticatedUser implements Principal {
+
+    private final Long userId;
+    private final String email;
+
+    public AuthenticatedUser(Long userId, String email) {
+        this.userId = userId;
+        this.email = email;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    /**
+     * The id of the caller behind {@code principal}, or null when it was not set by {@link BasicAuthFilter}.
+     */
+    public static Long idOf(Principal principal) {
+        return principal instanceof AuthenticatedUser user ? user.userId : null;
+    }
+}
@@ -2,12 +2,18 @@ package com.parfumerie.filter;
 
 import com.parfumerie.domain.Role;
 import com.parfumerie.domain.User;
+import com.parfumerie.service.CredentialCache;
+import com.parfumerie.service.HashingOverloadedException;
+import com.parfumerie.service.LoginThrottle;
+import com.parfumerie.service.TokenService;
 import com.parfumerie.service.UserService;
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
@@ -18,7 +24,9 @@ import java.security.Principal;
 import java.util.Base64;
 
 /**
- * Builds a SecurityContext from a Bearer token containing base64 email:password.
+ * Builds a SecurityContext from a Bearer value: either a signed session token issued by
+ * /auth/login (signature check only) or the legacy base64 email:password pair.
+ * Verified legacy headers are served from {@link CredentialCache} so bcrypt only runs on a miss.
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION)
@@ -27,6 +35,18 @@ public class BasicAuthFilter implements ContainerRequestFilter {
     @Inject
     private UserService userService;
 
+    @Inject
+    private CredentialCache credentialCache;
+
+    @Inject
+    private TokenService tokenService;
+
+    @Inject
+    private LoginThrottle loginThrottle;
+
+    @Context
+    private HttpServletRequest httpRequest;
+
     @Override
     public void filter(ContainerRequestContext requestContext) {
         String auth = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
@@ -35,6 +55,22 @@ public class BasicAuthFilter implements ContainerRequestFilter {
         }
 
         String encoded = auth.substring("Bearer ".length()).trim();
+        if (TokenService.looksLikeToken(encoded)) {
+            TokenService.Claims claims = tokenService.verify(encoded);
+            if (claims == null) {
+                requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
+                return;
+            }
+            applySecurityContext(requestContext, claims.userId, claims.email, claims.role);
+            return;
+        }
+
+        CredentialCache.VerifiedCredential cached = credentialCache.get(auth);
+        if (cached != null) {
+            applySecurityContext(requestContext, cached.userId, cached.email, cached.role);
+            return;
+        }
+
         String decoded;
         try {
             byte[] bytes = Base64.getDecoder().decode(encoded);
@@ -52,18 +88,38 @@ public class BasicAuthFilter implements ContainerRequestFilter {
 
         String email = decoded.substring(0, sep);
         String password = decoded.substring(sep + 1);
-        User user = userService.authenticate(email, password);
+        String address = loginThrottle.clientAddress(httpRequest);
+        long retryAfter = loginThrottle.retryAfterSeconds(email, address);
+        if (retryAfter > 0) {
+            requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter).build());
+            return;
+        }
+
+        User user;
+        try {
+            user = userService.authenticate(email, password);
+        } catch (HashingOverloadedException ex) {
+            loginThrottle.release(email, address);
+            throw ex;
+        }
         if (user == null) {
             requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED).build());
             return;
         }
+        loginThrottle.recordSuccess(email, address);
+
+        credentialCache.put(auth, user.getId(), user.getEmail(), user.getRole());
+        applySecurityContext(requestContext, user.getId(), user.getEmail(), user.getRole());
+    }
 
-        Role role = user.getRole();
+    private void applySecurityContext(ContainerRequestContext requestContext, Long userId, String email, Role role) {
         SecurityContext current = requestContext.getSecurityContext();
+        Principal principal = new AuthenticatedUser(userId, email);
         requestContext.setSecurityContext(new SecurityContext() {
             @Override
             public Principal getUserPrincipal() {
-                return () -> user.getEmail();
+                return principal;
             }
 
             @Override
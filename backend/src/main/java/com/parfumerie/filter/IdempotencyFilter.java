@@ -0,0 +1,163 @@
+package com.parfumerie.filter;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.service.IdempotencyStore;
+import com.parfumerie.service.InMemoryIdempotencyStore;
+import com.parfumerie.service.TableIdempotencyStore;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HexFormat;
+
+/**
+ * Honours an Idempotency-Key header on POST /orders and /orders/batch: a retry with the same key and body gets the
+ * stored 201 body back instead of placing the order again, and a duplicate sent while the first
+ * is still running waits for it. Keys are scoped to the caller; only 201 responses are remembered.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class IdempotencyFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String CLAIMED = IdempotencyFilter.class.getName() + ".key";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final boolean TABLE_STORE =
+            "table".equalsIgnoreCase(AppConfig.getString("orders.idempotency.store", "memory"));
+    private static final long WAIT_MS = AppConfig.getLong("orders.idempotency.wait-ms", 10_000);
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    @Inject
+    private InMemoryIdempotencyStore memoryStore;
+
+    @Inject
+    private TableIdempotencyStore tableStore;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String key = requestContext.getHeaderString(HEADER);
+        if (key == null || !"POST".equals(requestContext.getMethod()) || !isOrderCreation(requestContext)) {
+            return;
+        }
+
+        key = key.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters").build());
+            return;
+        }
+
+        byte[] body = requestContext.getEntityStream().readAllBytes();
+        requestContext.setEntityStream(new ByteArrayInputStream(body));
+
+        String scopedKey = scopedKey(caller(requestContext), key);
+        IdempotencyStore.Claim claim = store().claim(scopedKey, fingerprint(requestContext, body), WAIT_MS);
+        switch (claim.kind) {
+            case NEW:
+                requestContext.setProperty(CLAIMED, scopedKey);
+                break;
+            case REPLAY:
+                requestContext.abortWith(Response.status(Response.Status.CREATED)
+                        .type(MediaType.APPLICATION_JSON_TYPE)
+                        .header("Idempotent-Replayed", "true")
+                        .entity(claim.body).build());
+                break;
+            case MISMATCH:
+                requestContext.abortWith(Response.status(422)
+                        .entity(HEADER + " was already used with a different request").build());
+                break;
+            default:
+                requestContext.abortWith(Response.status(Response.Status.CONFLICT)
+                        .entity("A request with this " + HEADER + " is still in progress").build());
+        }
+    }
+
+    /**
+     * Runs after the resource's transaction has committed, so a stored body always has its order.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object scopedKey = requestContext.getProperty(CLAIMED);
+        if (scopedKey == null) return;
+
+        try {
+            if (responseContext.getStatus() == Response.Status.CREATED.getStatusCode()
+                    && responseContext.hasEntity()) {
+                String json = JSONB.toJson(responseContext.getEntity());
+                store().complete((String) scopedKey, json);
+                responseContext.setEntity(json, responseContext.getEntityAnnotations(), MediaType.APPLICATION_JSON_TYPE);
+            } else {
+                store().release((String) scopedKey);
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("Idempotency key not settled: " + ex.getMessage());
+        }
+    }
+
+    private IdempotencyStore store() {
+        return TABLE_STORE ? tableStore : memoryStore;
+    }
+
+    private static boolean isOrderCreation(ContainerRequestContext requestContext) {
+        String path = requestContext.getUriInfo().getPath();
+        if (path.startsWith("/")) path = path.substring(1);
+        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return path.equals("orders") || path.equals("orders/batch");
+    }
+
+    /**
+     * By user id where known, so keys survive an email change.
+     */
+    private static String caller(ContainerRequestContext requestContext) {
+        var security = requestContext.getSecurityContext();
+        Principal principal = security == null ? null : security.getUserPrincipal();
+        if (principal == null) return "anonymous";
+        Long userId = AuthenticatedUser.idOf(principal);
+        return userId != null ? "user:" + userId : principal.getName();
+    }
+
+    /**
+     * SHA-256 of caller and key, so the stored key is 64 characters whatever the email and header lengths.
+     */
+    static String scopedKey(String caller, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(caller.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String fingerprint(ContainerRequestContext requestContext, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(requestContext.getUriInfo().getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
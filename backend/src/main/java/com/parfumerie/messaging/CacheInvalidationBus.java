@@ -0,0 +1,155 @@
+package com.parfumerie.messaging;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.MapMessage;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.UUID;
+
+/**
+ * Fans cache invalidations and token revocations out to local observers and, after commit, to other nodes over a JMS topic.
+ */
+@ApplicationScoped
+public class CacheInvalidationBus {
+
+    public static final String TOPIC = "CacheInvalidationTopic";
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    @Inject
+    private Event<CacheInvalidationEvent> invalidations;
+
+    @Inject
+    private Event<TokenRevokedEvent> revocations;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private volatile boolean jmsAvailable = true;
+
+    /**
+     * Invalidates now and again after the surrounding transaction completes, so a reader that
+     * loaded the old row mid-transaction cannot leave a stale entry behind; remote nodes are told on commit.
+     */
+    public void invalidate(Class<?> type, Long id, Long version) {
+        if (id == null) return;
+        announce(type, id, version);
+    }
+
+    /**
+     * Invalidates every cached instance of the type, for bulk writes too large to announce row by row.
+     */
+    public void invalidateAll(Class<?> type) {
+        announce(type, null, null);
+    }
+
+    /**
+     * Tells other nodes, on commit, that a token was revoked; the caller has already revoked it locally.
+     */
+    public void revokeToken(String tokenId, Long userId, long issuedAt, long expiresAt) {
+        if (tokenId == null) return;
+        afterCommit(() -> publish(message -> {
+            message.setString("token", tokenId);
+            if (userId != null) message.setLong("userId", userId);
+            message.setLong("issuedAt", issuedAt);
+            message.setLong("expiresAt", expiresAt);
+        }), null);
+    }
+
+    /**
+     * Tells other nodes, on commit, that every token of the user issued up to {@code issuedAt} is revoked.
+     */
+    public void revokeUserTokens(Long userId, long issuedAt, long until) {
+        if (userId == null) return;
+        afterCommit(() -> publish(message -> {
+            message.setLong("tokensOf", userId);
+            message.setLong("issuedAt", issuedAt);
+            message.setLong("expiresAt", until);
+        }), null);
+    }
+
+    private void announce(Class<?> type, Long id, Long version) {
+        String entity = type.getSimpleName();
+        invalidations.fire(new CacheInvalidationEvent(entity, id, version, false));
+        afterCommit(() -> publish(message -> {
+                    message.setString("entity", entity);
+                    if (id != null) message.setLong("id", id);
+                    if (version != null) message.setLong("version", version);
+                }),
+                () -> invalidations.fire(new CacheInvalidationEvent(entity, id, version, false)));
+    }
+
+    /**
+     * Runs {@code onCommit} once the surrounding transaction commits (at once when there is none),
+     * and {@code onCompletion}, if given, whatever the outcome.
+     */
+    private void afterCommit(Runnable onCommit, Runnable onCompletion) {
+        if (txRegistry == null || txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            onCommit.run();
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (onCompletion != null) onCompletion.run();
+                if (status == Status.STATUS_COMMITTED) {
+                    onCommit.run();
+                }
+            }
+        });
+    }
+
+    void receive(MapMessage message) throws JMSException {
+        if (message.itemExists("token")) {
+            Long userId = message.itemExists("userId") ? message.getLong("userId") : null;
+            revocations.fire(new TokenRevokedEvent(message.getString("token"), userId,
+                    message.getLong("issuedAt"), message.getLong("expiresAt")));
+            return;
+        }
+        if (message.itemExists("tokensOf")) {
+            revocations.fire(new TokenRevokedEvent(null, message.getLong("tokensOf"),
+                    message.getLong("issuedAt"), message.getLong("expiresAt")));
+            return;
+        }
+        Long id = message.itemExists("id") ? message.getLong("id") : null;
+        Long version = message.itemExists("version") ? message.getLong("version") : null;
+        invalidations.fire(new CacheInvalidationEvent(message.getString("entity"), id, version, true));
+    }
+
+    private interface MessageBody {
+        void fill(MapMessage message) throws JMSException;
+    }
+
+    private void publish(MessageBody body) {
+        if (!jmsAvailable) return;
+        try {
+            InitialContext ctx = new InitialContext();
+            ConnectionFactory factory =
+                    (ConnectionFactory) ctx.lookup("java:comp/DefaultJMSConnectionFactory");
+
+            try (JMSContext jms = factory.createContext()) {
+                MapMessage message = jms.createMapMessage();
+                body.fill(message);
+                message.setStringProperty("origin", NODE_ID);
+                jms.createProducer().send(jms.createTopic(TOPIC), message);
+            }
+        } catch (NamingException ex) {
+            jmsAvailable = false;
+            System.out.println("JMS unavailable (no ConnectionFactory) - cache invalidation stays local");
+        } catch (Exception ex) {
+            System.err.println("Failed to publish cache invalidation: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.parfumerie.messaging;
+
+import jakarta.interceptor.Interceptor;
+
+import java.io.Serializable;
+
+/**
+ * Signals that cached copies of an entity are stale, either locally or on another node.
+ */
+public class CacheInvalidationEvent implements Serializable {
+
+    /**
+     * Observer order: the shared cache evicts first, unannotated observers (default priority) re-read
+     * after it, and version counters move last, so a new ETag is never paired with a stale cached row.
+     */
+    public static final int EVICT = Interceptor.Priority.APPLICATION;
+    public static final int VERSION = Interceptor.Priority.APPLICATION + 900;
+
+    private final String entity;
+    private final Long entityId;
+    private final Long version;
+    private final boolean remote;
+
+    public CacheInvalidationEvent(String entity, Long entityId, Long version, boolean remote) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.version = version;
+        this.remote = remote;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+
+    /**
+     * No id: every cached instance of the entity is stale.
+     */
+    public boolean isTypeWide() {
+        return entityId == null;
+    }
+
+    public boolean concerns(Class<?> type) {
+        return type.getSimpleName().equals(entity);
+    }
+}
@@ -0,0 +1,78 @@
+package com.parfumerie.messaging;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSConsumer;
+import jakarta.jms.JMSContext;
+import jakarta.jms.MapMessage;
+import jakarta.jms.Message;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Keeps a subscription on the invalidation topic and drains it on schedule, skipping this node's own messages.
+ */
+@Singleton
+@Startup
+public class CacheInvalidationSubscriber {
+
+    private static final int MAX_PER_POLL = 500;
+
+    @Inject
+    private CacheInvalidationBus bus;
+
+    private JMSContext jms;
+    private JMSConsumer consumer;
+    private boolean disabled;
+
+    @Schedule(second = "*/2", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void poll() {
+        if (disabled) return;
+        try {
+            if (consumer == null) {
+                subscribe();
+            }
+            for (int i = 0; i < MAX_PER_POLL; i++) {
+                Message msg = consumer.receiveNoWait();
+                if (msg == null) break;
+                if (msg instanceof MapMessage map) {
+                    bus.receive(map);
+                }
+            }
+        } catch (NamingException ex) {
+            disabled = true;
+        } catch (Exception ex) {
+            System.err.println("Cache invalidation poll error: " + ex.getMessage());
+            close();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (jms != null) {
+            try {
+                jms.close();
+            } catch (Exception ignored) {
+            }
+        }
+        jms = null;
+        consumer = null;
+    }
+
+    private void subscribe() throws NamingException {
+        InitialContext ctx = new InitialContext();
+        ConnectionFactory factory =
+                (ConnectionFactory) ctx.lookup("java:comp/DefaultJMSConnectionFactory");
+        jms = factory.createContext();
+        consumer = jms.createConsumer(jms.createTopic(CacheInvalidationBus.TOPIC),
+                "origin <> '" + CacheInvalidationBus.NODE_ID + "'");
+    }
+}
@@ -1,9 +1,16 @@
 package com.parfumerie.messaging;
 
 import com.parfumerie.domain.Order;
+import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -15,10 +22,46 @@ public class OrderEventPublisher {
     @Inject
     private Event<OrderCreatedEvent> orderCreatedEvents;
 
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
     public void publishOrderCreated(Order order) {
         OrderCreatedEvent payload = OrderCreatedEvent.from(order);
         if (payload == null) return;
         
         orderCreatedEvents.fire(payload);
     }
+
+    /**
+     * Announces a batch of orders once the surrounding transaction has committed; nothing fires on rollback.
+     */
+    public void publishOrdersCreated(List<Order> orders) {
+        List<OrderCreatedEvent> payloads = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            OrderCreatedEvent payload = OrderCreatedEvent.from(order);
+            if (payload != null) payloads.add(payload);
+        }
+        if (payloads.isEmpty()) return;
+
+        if (txRegistry == null || txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            payloads.forEach(orderCreatedEvents::fire);
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != Status.STATUS_COMMITTED) return;
+                for (OrderCreatedEvent payload : payloads) {
+                    try {
+                        orderCreatedEvents.fire(payload);
+                    } catch (RuntimeException ex) {
+                        System.err.println("Order created event failed for order " + payload.getOrderId() + ": " + ex.getMessage());
+                    }
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,71 @@
+package com.parfumerie.messaging;
+
+import com.parfumerie.domain.Perfume;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes committed catalog changes; read models (search, suggestions, caches) observe it after success.
+ */
+public class PerfumeChangedEvent {
+
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK
+    }
+
+    private final Kind kind;
+    private final List<Perfume> perfumes;
+    private final List<Long> ids;
+
+    public PerfumeChangedEvent(Kind kind, List<Perfume> perfumes) {
+        this.kind = kind;
+        this.perfumes = perfumes;
+        this.ids = new ArrayList<>(perfumes.size());
+        for (Perfume p : perfumes) {
+            if (p != null && p.getId() != null) ids.add(p.getId());
+        }
+    }
+
+    private PerfumeChangedEvent(Kind kind, List<Perfume> perfumes, List<Long> ids) {
+        this.kind = kind;
+        this.perfumes = perfumes;
+        this.ids = ids;
+    }
+
+    /**
+     * Stock-only change known by ids alone (set-based updates), without loaded entities.
+     */
+    public static PerfumeChangedEvent stockChanged(List<Long> ids) {
+        return new PerfumeChangedEvent(Kind.STOCK, List.of(), ids);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Loaded perfumes; may be empty for set-based stock changes, see {@link #getIds()}.
+     */
+    public List<Perfume> getPerfumes() {
+        return perfumes;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public boolean isDeletion() {
+        return kind == Kind.DELETED;
+    }
+
+    /**
+     * Only stock, availability or price moved (checkout, batch updates); descriptive fields are unchanged.
+     */
+    public boolean isStockOnly() {
+        return kind == Kind.STOCK;
+    }
+}
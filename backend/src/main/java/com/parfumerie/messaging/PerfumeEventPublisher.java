@@ -0,0 +1,63 @@
+package com.parfumerie.messaging;
+
+import com.parfumerie.domain.Perfume;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Publishes catalog change events into the CDI event bus.
+ */
+@ApplicationScoped
+public class PerfumeEventPublisher {
+
+    @Inject
+    private Event<PerfumeChangedEvent> perfumeChangedEvents;
+
+    public void publishCreated(Perfume perfume) {
+        publish(PerfumeChangedEvent.Kind.CREATED, perfume);
+    }
+
+    public void publishUpdated(Perfume perfume) {
+        publish(PerfumeChangedEvent.Kind.UPDATED, perfume);
+    }
+
+    public void publishDeleted(Perfume perfume) {
+        publish(PerfumeChangedEvent.Kind.DELETED, perfume);
+    }
+
+    public void publishCreated(Collection<Perfume> perfumes) {
+        publish(PerfumeChangedEvent.Kind.CREATED, perfumes);
+    }
+
+    public void publishUpdated(Collection<Perfume> perfumes) {
+        publish(PerfumeChangedEvent.Kind.UPDATED, perfumes);
+    }
+
+    public void publishStockChanged(Collection<Perfume> perfumes) {
+        publish(PerfumeChangedEvent.Kind.STOCK, perfumes);
+    }
+
+    /**
+     * Price/stock/availability written by set-based updates, announced once for the whole batch.
+     */
+    public void publishBatchUpdated(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return;
+        perfumeChangedEvents.fire(PerfumeChangedEvent.stockChanged(new ArrayList<>(ids)));
+    }
+
+    private void publish(PerfumeChangedEvent.Kind kind, Perfume perfume) {
+        if (perfume == null) return;
+        perfumeChangedEvents.fire(new PerfumeChangedEvent(kind, List.of(perfume)));
+    }
+
+    private void publish(PerfumeChangedEvent.Kind kind, Collection<Perfume> perfumes) {
+        if (perfumes == null || perfumes.isEmpty()) return;
+        perfumeChangedEvents.fire(new PerfumeChangedEvent(kind, new ArrayList<>(perfumes)));
+    }
+}
@@ -0,0 +1,38 @@
+package com.parfumerie.messaging;
+
+import java.io.Serializable;
+
+/**
+ * Signals that another node revoked a session token before its expiry. Without a token id it revokes
+ * every token of the user issued up to {@code issuedAt}, as after a password or email change.
+ */
+public class TokenRevokedEvent implements Serializable {
+
+    private final String tokenId;
+    private final Long userId;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public TokenRevokedEvent(String tokenId, Long userId, long issuedAt, long expiresAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
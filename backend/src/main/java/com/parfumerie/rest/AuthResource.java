@@ -1,15 +1,24 @@
 package com.parfumerie.rest;
 
 import com.parfumerie.domain.User;
+import com.parfumerie.service.HashingOverloadedException;
+import com.parfumerie.service.LoginThrottle;
+import com.parfumerie.service.TokenService;
 import com.parfumerie.service.UserService;
 import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
- * Auth endpoint for login and user summary responses.
+ * Auth endpoints: login issues a signed session token, refresh rotates it, logout revokes it.
  */
 @Path("auth")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -20,6 +29,12 @@ public class AuthResource {
     @Inject
     private UserService userService;
 
+    @Inject
+    private TokenService tokenService;
+
+    @Inject
+    private LoginThrottle loginThrottle;
+
     public static class LoginRequest {
         public String email;
         public String password;
@@ -48,18 +63,83 @@ public class AuthResource {
         }
     }
 
+    public static class LoginResponse extends UserResponse {
+        public String token;
+        public long expiresAt;
+
+        public static LoginResponse from(User u, TokenService.IssuedToken issued) {
+            LoginResponse r = new LoginResponse();
+            r.id = u.getId();
+            r.firstName = u.getFirstName();
+            r.lastName = u.getLastName();
+            r.email = u.getEmail();
+            r.phone = u.getPhone();
+            r.address = u.getAddress();
+            r.role = u.getRole() != null ? u.getRole().name() : null;
+            r.token = issued.token;
+            r.expiresAt = issued.expiresAt;
+            return r;
+        }
+    }
+
     @POST
     @Path("login")
-    public Response login(LoginRequest req) {
+    public CompletionStage<Response> login(LoginRequest req, @Context HttpServletRequest httpRequest) {
         if (req == null || req.email == null || req.password == null) {
-            return Response.status(Response.Status.BAD_REQUEST).entity("email/password required").build();
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.BAD_REQUEST).entity("email/password required").build());
+        }
+
+        String address = loginThrottle.clientAddress(httpRequest);
+        long retryAfter = loginThrottle.retryAfterSeconds(req.email, address);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                    .entity("Too many failed attempts, retry later")
+                    .build());
         }
 
-        User u = userService.authenticate(req.email, req.password);
+        try {
+            return userService.authenticateAsync(req.email, req.password)
+                    .thenApply(u -> {
+                        if (u == null) {
+                            return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid credentials").build();
+                        }
+                        loginThrottle.recordSuccess(req.email, address);
+                        return Response.ok(LoginResponse.from(u, tokenService.issue(u))).build();
+                    });
+        } catch (HashingOverloadedException ex) {
+            loginThrottle.release(req.email, address);
+            return CompletableFuture.completedFuture(HashingOverloadedMapper.serviceUnavailable(ex));
+        }
+    }
+
+    @POST
+    @Path("refresh")
+    public Response refresh(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        TokenService.Claims claims = tokenService.verify(bearerValue(authorization));
+        if (claims == null) {
+            return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid or expired token").build();
+        }
+
+        User u = userService.findUser(claims.userId);
         if (u == null) {
-            return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid credentials").build();
+            return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid or expired token").build();
         }
 
-        return Response.ok(UserResponse.from(u)).build();
+        tokenService.revoke(claims);
+        return Response.ok(LoginResponse.from(u, tokenService.issue(u))).build();
+    }
+
+    @POST
+    @Path("logout")
+    public Response logout(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        tokenService.revoke(tokenService.verify(bearerValue(authorization)));
+        return Response.noContent().build();
+    }
+
+    private String bearerValue(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) return null;
+        return authorization.substring("Bearer ".length()).trim();
     }
 }
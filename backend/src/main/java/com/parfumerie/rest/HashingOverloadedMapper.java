@@ -0,0 +1,26 @@
+package com.parfumerie.rest;
+
+import com.parfumerie.service.HashingOverloadedException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Turns a full hashing queue into a fast 503 with Retry-After.
+ */
+@Provider
+public class HashingOverloadedMapper implements ExceptionMapper<HashingOverloadedException> {
+
+    @Override
+    public Response toResponse(HashingOverloadedException ex) {
+        return serviceUnavailable(ex);
+    }
+
+    static Response serviceUnavailable(HashingOverloadedException ex) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, ex.getRetryAfterSeconds())
+                .entity("Server busy, retry later")
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.parfumerie.rest;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Order;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.User;
+import com.parfumerie.service.FieldSet;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.persistence.Tuple;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes large JSON arrays chunk by chunk with a JSON-P generator, so memory stays flat and
+ * the first rows leave before the last ones are read. Field names and order follow the
+ * JSON-B output of the entities (lexicographic, nulls omitted); user passwords are never written.
+ */
+final class JsonStreaming {
+
+    static final int CHUNK_SIZE = AppConfig.getInt("rest.stream.chunk-size", 500);
+
+    private static final JsonGeneratorFactory GENERATORS = Json.createGeneratorFactory(Map.of());
+
+    /**
+     * Writes the rows after {@code afterId} and returns the last id written, or null once the source is exhausted.
+     */
+    interface Chunk {
+        Long writeAfter(JsonGenerator g, long afterId);
+    }
+
+    private JsonStreaming() {}
+
+    static StreamingOutput array(Chunk chunk) {
+        return out -> {
+            try (JsonGenerator g = GENERATORS.createGenerator(out)) {
+                g.writeStartArray();
+                Long last = 0L;
+                while ((last = chunk.writeAfter(g, last)) != null) {
+                    g.flush();
+                }
+                g.writeEnd();
+            }
+        };
+    }
+
+    /**
+     * Continuation for a chunk of {@code size} rows ending at {@code lastId}: null when the chunk was short.
+     */
+    static Long next(int size, Long lastId) {
+        return size < CHUNK_SIZE ? null : lastId;
+    }
+
+    static void writePerfume(JsonGenerator g, Perfume p) {
+        g.writeStartObject();
+        write(g, "available", p.getAvailable());
+        write(g, "brand", p.getBrand());
+        write(g, "comment", p.getComment());
+        write(g, "description", p.getDescription());
+        write(g, "format", p.getFormat());
+        write(g, "gender", p.getGender());
+        write(g, "hotStock", p.getHotStock());
+        write(g, "id", p.getId());
+        write(g, "name", p.getName());
+        write(g, "price", p.getPrice());
+        write(g, "stock", p.getStock());
+        write(g, "type", p.getType());
+        g.writeEnd();
+    }
+
+    /**
+     * Writes one item from a {orderId, itemId, quantity, unitPrice, perfume} row.
+     */
+    static void writeItemRow(JsonGenerator g, Object[] row) {
+        g.writeStartObject();
+        write(g, "id", (Long) row[1]);
+        if (row[4] != null) {
+            g.writeKey("perfume");
+            writePerfume(g, (Perfume) row[4]);
+        }
+        write(g, "quantity", (Integer) row[2]);
+        write(g, "unitPrice", (BigDecimal) row[3]);
+        g.writeEnd();
+    }
+
+    static void writeOrder(JsonGenerator g, Order o, List<Object[]> itemRows) {
+        g.writeStartObject();
+        write(g, "id", o.getId());
+        g.writeStartArray("items");
+        for (Object[] row : itemRows) {
+            writeItemRow(g, row);
+        }
+        g.writeEnd();
+        if (o.getOrderDate() != null) {
+            g.write("orderDate", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(o.getOrderDate()));
+        }
+        write(g, "paymentMethod", o.getPaymentMethod());
+        write(g, "shippingAddress", o.getShippingAddress());
+        write(g, "status", o.getStatus());
+        write(g, "totalPrice", o.getTotalPrice());
+        if (o.getUser() != null) {
+            g.writeKey("user");
+            writeUser(g, o.getUser());
+        }
+        g.writeEnd();
+    }
+
+    static void writeUser(JsonGenerator g, User u) {
+        g.writeStartObject();
+        write(g, "address", u.getAddress());
+        write(g, "email", u.getEmail());
+        write(g, "firstName", u.getFirstName());
+        write(g, "id", u.getId());
+        write(g, "lastName", u.getLastName());
+        write(g, "phone", u.getPhone());
+        if (u.getRole() != null) g.write("role", u.getRole().name());
+        g.writeEnd();
+    }
+
+    /**
+     * Writes a projected row; nulls are omitted like the full representation does.
+     */
+    static void writeTuple(JsonGenerator g, FieldSet fields, Tuple row) {
+        g.writeStartObject();
+        for (String name : fields.names()) {
+            Object value = row.get(name);
+            if (value == null) continue;
+            if (value instanceof BigDecimal) g.write(name, (BigDecimal) value);
+            else if (value instanceof Long || value instanceof Integer) g.write(name, ((Number) value).longValue());
+            else if (value instanceof Boolean) g.write(name, (Boolean) value);
+            else if (value instanceof LocalDateTime) g.write(name, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((LocalDateTime) value));
+            else if (value instanceof Enum) g.write(name, ((Enum<?>) value).name());
+            else g.write(name, value.toString());
+        }
+        g.writeEnd();
+    }
+
+    private static void write(JsonGenerator g, String name, String value) {
+        if (value != null) g.write(name, value);
+    }
+
+    private static void write(JsonGenerator g, String name, Long value) {
+        if (value != null) g.write(name, value);
+    }
+
+    private static void write(JsonGenerator g, String name, Integer value) {
+        if (value != null) g.write(name, value);
+    }
+
+    private static void write(JsonGenerator g, String name, BigDecimal value) {
+        if (value != null) g.write(name, value);
+    }
+
+    private static void write(JsonGenerator g, String name, Boolean value) {
+        if (value != null) g.write(name, value);
+    }
+}
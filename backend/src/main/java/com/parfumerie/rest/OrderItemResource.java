@@ -3,12 +3,18 @@ package com.parfumerie.rest;
 import com.parfumerie.domain.Order;
 import com.parfumerie.domain.OrderItem;
 import com.parfumerie.domain.Perfume;
+import com.parfumerie.service.FieldSet;
+import com.parfumerie.service.OrderService;
+import com.parfumerie.service.ResourceVersions;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -24,6 +30,12 @@ public class OrderItemResource {
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
+    @Inject
+    private ResourceVersions resourceVersions;
+
+    @Inject
+    private OrderService orderService;
+
     public static class CreateOrderItemRequest {
         public Long orderId;
         public Long perfumeId;
@@ -31,9 +43,39 @@ public class OrderItemResource {
         public BigDecimal unitPrice;
     }
 
+    /**
+     * Streams every item with its perfume, one chunk at a time;
+     * with ?fields= only those columns are read and written.
+     */
     @GET
-    public List<OrderItem> getAll() {
-        return em.createQuery("SELECT oi FROM OrderItem oi", OrderItem.class).getResultList();
+    public Response getAll(@QueryParam("fields") String fields) {
+        FieldSet fieldSet;
+        try {
+            fieldSet = FieldSet.parse(fields, FieldSet.ORDER_ITEM);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        if (fieldSet != null) {
+            StreamingOutput body = JsonStreaming.array((g, afterId) -> {
+                List<Tuple> rows = orderService.findItemChunk(afterId, JsonStreaming.CHUNK_SIZE, fieldSet);
+                if (rows.isEmpty()) return null;
+                for (Tuple row : rows) {
+                    JsonStreaming.writeTuple(g, fieldSet, row);
+                }
+                return JsonStreaming.next(rows.size(), rows.get(rows.size() - 1).get("id", Long.class));
+            });
+            return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        StreamingOutput body = JsonStreaming.array((g, afterId) -> {
+            List<Object[]> rows = orderService.findItemChunk(afterId, JsonStreaming.CHUNK_SIZE);
+            if (rows.isEmpty()) return null;
+            for (Object[] row : rows) {
+                JsonStreaming.writeItemRow(g, row);
+            }
+            return JsonStreaming.next(rows.size(), (Long) rows.get(rows.size() - 1)[1]);
+        });
+        return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     @GET
@@ -69,6 +111,7 @@ public class OrderItemResource {
         
         recalculateOrderTotal(order);
         em.merge(order);
+        resourceVersions.ordersChanged();
         
         return Response.status(Response.Status.CREATED).entity(item).build();
     }
@@ -88,6 +131,7 @@ public class OrderItemResource {
         Order order = existing.getOrder();
         recalculateOrderTotal(order);
         em.merge(order);
+        resourceVersions.ordersChanged();
         
         return Response.ok(existing).build();
     }
@@ -104,6 +148,7 @@ public class OrderItemResource {
         
         recalculateOrderTotal(order);
         em.merge(order);
+        resourceVersions.ordersChanged();
         
         return Response.noContent().build();
     }
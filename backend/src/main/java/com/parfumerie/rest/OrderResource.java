@@ -4,24 +4,47 @@ import com.parfumerie.domain.Order;
 import com.parfumerie.domain.OrderItem;
 import com.parfumerie.domain.Perfume;
 import com.parfumerie.domain.User;
+import com.parfumerie.config.AppConfig;
 import com.parfumerie.messaging.DeadLetterChannel;
 import com.parfumerie.messaging.OrderEventPublisher;
+import com.parfumerie.messaging.PerfumeEventPublisher;
+import com.parfumerie.service.FieldSet;
+import com.parfumerie.service.HotStockLedger;
+import com.parfumerie.service.OrderService;
+import com.parfumerie.service.PerfumeService;
+import com.parfumerie.service.ResourceVersions;
 import jakarta.inject.Inject;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
+import jakarta.annotation.Resource;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Order REST resource: validates items, adjusts stock, and publishes events.
+ * Checkout validates every line up front and takes stock with conditional updates, so a rejected
+ * order changes nothing and concurrent checkouts cannot oversell.
  */
 @Path("orders")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -29,6 +52,8 @@ import java.util.List;
 @Transactional
 public class OrderResource {
 
+    private static final int MAX_BATCH_SIZE = AppConfig.getInt("orders.batch.max-size", 500);
+
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
@@ -38,6 +63,24 @@ public class OrderResource {
     @Inject
     private DeadLetterChannel deadLetterChannel;
 
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @Inject
+    private ResourceVersions resourceVersions;
+
+    @Inject
+    private PerfumeService perfumeService;
+
+    @Inject
+    private HotStockLedger hotStockLedger;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    private OrderService orderService;
+
     public static class OrderItemDto {
         public Long perfumeId;
         public Integer quantity;
@@ -52,17 +95,72 @@ public class OrderResource {
         public boolean testZeroTotal;
     }
 
+    public static class BatchOrderResult {
+        public int index;
+        public int status;
+        public Long id;
+        public BigDecimal total;
+        public String error;
+    }
+
+    public static class BatchOrderResponse {
+        public int created;
+        public int rejected;
+        public List<BatchOrderResult> results = new ArrayList<>();
+    }
+
+    /**
+     * Streams every order with its items and user, one chunk of orders at a time;
+     * with ?fields= only those columns are read and written.
+     */
     @GET
-    public List<Order> getAll() {
-        return em.createQuery("SELECT o FROM Order o", Order.class).getResultList();
+    public Response getAll(@QueryParam("fields") String fields) {
+        FieldSet fieldSet;
+        try {
+            fieldSet = FieldSet.parse(fields, FieldSet.ORDER);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        if (fieldSet != null) {
+            StreamingOutput body = JsonStreaming.array((g, afterId) -> {
+                List<Tuple> rows = orderService.findChunk(afterId, JsonStreaming.CHUNK_SIZE, fieldSet);
+                if (rows.isEmpty()) return null;
+                for (Tuple row : rows) {
+                    JsonStreaming.writeTuple(g, fieldSet, row);
+                }
+                return JsonStreaming.next(rows.size(), rows.get(rows.size() - 1).get("id", Long.class));
+            });
+            return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        StreamingOutput body = JsonStreaming.array((g, afterId) -> {
+            List<Order> orders = orderService.findChunk(afterId, JsonStreaming.CHUNK_SIZE);
+            if (orders.isEmpty()) return null;
+
+            List<Long> ids = new ArrayList<>(orders.size());
+            for (Order o : orders) ids.add(o.getId());
+            Map<Long, List<Object[]>> itemsByOrder = new HashMap<>();
+            for (Object[] row : orderService.findItemRows(ids)) {
+                itemsByOrder.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(row);
+            }
+            for (Order o : orders) {
+                JsonStreaming.writeOrder(g, o, itemsByOrder.getOrDefault(o.getId(), List.of()));
+            }
+            return JsonStreaming.next(orders.size(), ids.get(ids.size() - 1));
+        });
+        return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
     }
 
     @GET
     @Path("{id}")
-    public Response getById(@PathParam("id") Long id) {
+    public Response getById(@PathParam("id") Long id, @Context Request request) {
+        EntityTag tag = resourceVersions.orderTag();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.build();
+
         Order o = em.find(Order.class, id);
         if (o == null) return Response.status(Response.Status.NOT_FOUND).build();
-        return Response.ok(o).build();
+        return Response.ok(o).tag(tag).build();
     }
 
     @POST
@@ -79,51 +177,243 @@ public class OrderResource {
             return Response.status(Response.Status.BAD_REQUEST).entity("User not found").build();
         }
 
-        Order order = new Order();
-        order.setUser(user);
-        order.setStatus(req.status != null ? req.status : "PENDING");
-        order.setItems(new ArrayList<>());
-        order.setOrderDate(LocalDateTime.now());
-        order.setShippingAddress(user.getAddress());
+        Map<Long, Integer> requested = new TreeMap<>();
+        String lineError = lineError(req.items, requested);
+        if (lineError != null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(lineError).build();
+        }
 
-        BigDecimal total = BigDecimal.ZERO;
+        Map<Long, Perfume> perfumes = loadPerfumes(requested.keySet());
 
-        for (OrderItemDto itemDto : req.items) {
+        List<String> problems = lineProblems(req.userId, requested, perfumes, Map.of());
+        if (!problems.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(String.join("; ", problems)).build();
+        }
+
+        List<Long> stockChanged = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            Long perfumeId = line.getKey();
+            boolean hot = hotStockLedger.isHot(perfumes.get(perfumeId));
+            boolean taken = hot
+                    ? hotStockLedger.reserve(perfumeId, line.getValue())
+                    : perfumeService.decrementStock(perfumeId, line.getValue());
+            if (!taken) {
+                Integer available = hot ? hotStockLedger.available(perfumeId) : perfumeService.findStock(perfumeId);
+                reportOutOfStock(req.userId, perfumeId, line.getValue(), available);
+                txRegistry.setRollbackOnly();
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Not enough stock for perfume " + perfumeId).build();
+            }
+            if (!hot && perfumes.get(perfumeId).getStock() != null) stockChanged.add(perfumeId);
+        }
+
+        Order order = buildOrder(req, user, perfumes);
+        em.persist(order);
+        em.flush(); 
+
+        orderEventPublisher.publishOrderCreated(order);
+        perfumeEventPublisher.publishBatchUpdated(stockChanged);
+
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("id", order.getId());
+        result.put("status", order.getStatus());
+        result.put("total", order.getTotalPrice());
+        result.put("userEmail", user.getEmail());
+        result.put("createdAt", order.getOrderDate());
+
+        return Response.status(Response.Status.CREATED).entity(result).build();
+    }
+
+    /**
+     * Places many orders in one transaction. Users and perfumes are loaded once for the whole batch
+     * (tracked-stock rows write-locked in id order), each order is accepted or rejected on its own
+     * against what earlier orders in the batch already took, stock then moves with one UPDATE per
+     * SKU, and the inserts go out JDBC-batched. Order-created events fire after commit.
+     * Answers 201 when at least one order was placed (so an Idempotency-Key replays it), else 200.
+     */
+    @POST
+    @Path("batch")
+    public Response createBatch(List<CreateOrderRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("At least one order is required").build();
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("At most " + MAX_BATCH_SIZE + " orders per batch").build();
+        }
+
+        BatchOrderResponse response = new BatchOrderResponse();
+        List<Map<Long, Integer>> lines = new ArrayList<>(requests.size());
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> perfumeIds = new TreeSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateOrderRequest req = requests.get(i);
+            BatchOrderResult result = new BatchOrderResult();
+            result.index = i;
+            response.results.add(result);
+
+            Map<Long, Integer> requested = new TreeMap<>();
+            String error;
+            if (req == null || req.userId == null) {
+                error = "userId is required";
+            } else if (req.items == null || req.items.isEmpty()) {
+                error = "Order must have at least one item";
+            } else {
+                error = lineError(req.items, requested);
+            }
+            if (error != null) {
+                reject(response, result, error);
+                lines.add(null);
+                continue;
+            }
+            lines.add(requested);
+            userIds.add(req.userId);
+            perfumeIds.addAll(requested.keySet());
+        }
+
+        Map<Long, User> users = loadUsers(userIds);
+        Map<Long, Perfume> perfumes = loadBatchPerfumes(perfumeIds);
+
+        Map<Long, Integer> taken = new TreeMap<>();
+        List<Order> placed = new ArrayList<>();
+        List<BatchOrderResult> placedResults = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Map<Long, Integer> requested = lines.get(i);
+            if (requested == null) continue;
+            CreateOrderRequest req = requests.get(i);
+            BatchOrderResult result = response.results.get(i);
+
+            User user = users.get(req.userId);
+            if (user == null) {
+                reject(response, result, "User not found");
+                continue;
+            }
+
+            List<String> problems = lineProblems(req.userId, requested, perfumes, taken);
+            if (problems.isEmpty()) {
+                String hotProblem = reserveHotLines(req.userId, requested, perfumes);
+                if (hotProblem != null) problems.add(hotProblem);
+            }
+            if (!problems.isEmpty()) {
+                reject(response, result, String.join("; ", problems));
+                continue;
+            }
+
+            for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+                if (!hotStockLedger.isHot(perfumes.get(line.getKey()))) {
+                    taken.merge(line.getKey(), line.getValue(), Integer::sum);
+                }
+            }
+            Order order = buildOrder(req, user, perfumes);
+            em.persist(order);
+            placed.add(order);
+            placedResults.add(result);
+        }
+
+        List<Long> stockChanged = new ArrayList<>();
+        for (Map.Entry<Long, Integer> total : taken.entrySet()) {
+            if (perfumes.get(total.getKey()).getStock() == null) continue;
+            if (!perfumeService.decrementStock(total.getKey(), total.getValue())) {
+                throw new IllegalStateException("Stock of locked perfume " + total.getKey() + " changed during batch");
+            }
+            stockChanged.add(total.getKey());
+        }
+        em.flush();
+
+        for (int i = 0; i < placed.size(); i++) {
+            BatchOrderResult result = placedResults.get(i);
+            result.status = Response.Status.CREATED.getStatusCode();
+            result.id = placed.get(i).getId();
+            result.total = placed.get(i).getTotalPrice();
+        }
+        response.created = placed.size();
+
+        orderEventPublisher.publishOrdersCreated(placed);
+        perfumeEventPublisher.publishBatchUpdated(stockChanged);
+        Response.Status status = response.created > 0 ? Response.Status.CREATED : Response.Status.OK;
+        return Response.status(status).entity(response).build();
+    }
+
+    /**
+     * Loads every referenced perfume in one query. Stock read here is only a fast pre-check; the
+     * conditional decrement is what decides, and it runs in id order so row locks queue the same way.
+     */
+    private Map<Long, Perfume> loadPerfumes(Collection<Long> ids) {
+        return loadPerfumes(ids, LockModeType.NONE);
+    }
+
+    private Map<Long, Perfume> loadPerfumes(Collection<Long> ids, LockModeType lock) {
+        Map<Long, Perfume> perfumes = new HashMap<>();
+        if (ids.isEmpty()) return perfumes;
+        for (Perfume p : em.createQuery("SELECT p FROM Perfume p WHERE p.id IN :ids ORDER BY p.id", Perfume.class)
+                .setParameter("ids", ids)
+                .setLockMode(lock)
+                .getResultList()) {
+            perfumes.put(p.getId(), p);
+        }
+        return perfumes;
+    }
+
+    /**
+     * Sums quantities per perfume into {@code requested}; the first invalid line's message, or null.
+     */
+    private static String lineError(List<OrderItemDto> items, Map<Long, Integer> requested) {
+        for (OrderItemDto itemDto : items) {
             if (itemDto == null || itemDto.perfumeId == null) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("perfumeId is required").build();
+                return "perfumeId is required";
             }
 
             int qty = itemDto.quantity == null ? 0 : itemDto.quantity;
             if (qty <= 0) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("Quantity must be > 0").build();
+                return "Quantity must be > 0";
             }
+            requested.merge(itemDto.perfumeId, qty, Integer::sum);
+        }
+        return null;
+    }
 
-            Perfume perfume = em.find(Perfume.class, itemDto.perfumeId);
+    /**
+     * Problems that reject an order outright: missing or unavailable perfumes, and lines above
+     * {@code stock - taken}. Hot-stock perfumes are left to the ledger.
+     */
+    private List<String> lineProblems(Long userId, Map<Long, Integer> requested, Map<Long, Perfume> perfumes,
+                                      Map<Long, Integer> taken) {
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            Perfume perfume = perfumes.get(line.getKey());
             if (perfume == null) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Perfume " + itemDto.perfumeId + " not found").build();
+                problems.add("Perfume " + line.getKey() + " not found");
+                continue;
             }
 
             if (perfume.getAvailable() != null && !perfume.getAvailable()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Perfume " + perfume.getId() + " is not available").build();
+                problems.add("Perfume " + perfume.getId() + " is not available");
+                continue;
             }
 
             Integer stock = perfume.getStock();
-            if (stock != null) {
-                if (stock < qty) {
-                    HashMap<String, Object> payload = new HashMap<>();
-                    payload.put("userId", req.userId);
-                    payload.put("perfumeId", perfume.getId());
-                    payload.put("requestedQty", qty);
-                    payload.put("availableStock", stock);
-                    deadLetterChannel.report(payload, "Out of stock for perfume " + perfume.getId());
-                    return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Not enough stock for perfume " + perfume.getId()).build();
-                }
-                perfume.setStock(stock - qty);
+            if (stock == null || hotStockLedger.isHot(perfume)) continue;
+            int left = stock - taken.getOrDefault(perfume.getId(), 0);
+            if (left < line.getValue()) {
+                reportOutOfStock(userId, perfume.getId(), line.getValue(), left);
+                problems.add("Not enough stock for perfume " + perfume.getId());
             }
+        }
+        return problems;
+    }
 
+    private static Order buildOrder(CreateOrderRequest req, User user, Map<Long, Perfume> perfumes) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(req.status != null ? req.status : "PENDING");
+        order.setItems(new ArrayList<>());
+        order.setOrderDate(LocalDateTime.now());
+        order.setShippingAddress(user.getAddress());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItemDto itemDto : req.items) {
+            Perfume perfume = perfumes.get(itemDto.perfumeId);
+            int qty = itemDto.quantity;
             BigDecimal unitPrice = perfume.getPrice() != null ? perfume.getPrice() : BigDecimal.ZERO;
 
             OrderItem item = new OrderItem();
@@ -142,20 +432,72 @@ public class OrderResource {
         }
 
         order.setTotalPrice(total);
+        return order;
+    }
 
-        em.persist(order);
-        em.flush(); 
+    private Map<Long, User> loadUsers(Collection<Long> ids) {
+        Map<Long, User> users = new HashMap<>();
+        if (ids.isEmpty()) return users;
+        for (User u : em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .getResultList()) {
+            users.put(u.getId(), u);
+        }
+        return users;
+    }
 
-        orderEventPublisher.publishOrderCreated(order);
+    /**
+     * Write-locks the batch's perfumes in id order, so stock read here holds until commit. Hot-stock
+     * perfumes are read without a lock; the ledger guards them.
+     */
+    private Map<Long, Perfume> loadBatchPerfumes(Set<Long> ids) {
+        if (!hotStockLedger.isEnabled()) return loadPerfumes(ids, LockModeType.PESSIMISTIC_WRITE);
+
+        Map<Long, Perfume> perfumes = loadPerfumes(ids);
+        Set<Long> cold = new TreeSet<>();
+        for (Perfume p : List.copyOf(perfumes.values())) {
+            if (hotStockLedger.isHot(p)) continue;
+            cold.add(p.getId());
+            perfumes.remove(p.getId());
+            em.detach(p);
+        }
+        perfumes.putAll(loadPerfumes(cold, LockModeType.PESSIMISTIC_WRITE));
+        return perfumes;
+    }
 
-        HashMap<String, Object> result = new HashMap<>();
-        result.put("id", order.getId());
-        result.put("status", order.getStatus());
-        result.put("total", order.getTotalPrice());
-        result.put("userEmail", user.getEmail());
-        result.put("createdAt", order.getOrderDate());
+    /**
+     * Reserves an order's hot-stock lines; on a shortfall gives back what it took and returns the problem.
+     */
+    private String reserveHotLines(Long userId, Map<Long, Integer> requested, Map<Long, Perfume> perfumes) {
+        Map<Long, Integer> reserved = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : requested.entrySet()) {
+            Long perfumeId = line.getKey();
+            if (!hotStockLedger.isHot(perfumes.get(perfumeId))) continue;
+            if (!hotStockLedger.reserve(perfumeId, line.getValue())) {
+                reportOutOfStock(userId, perfumeId, line.getValue(), hotStockLedger.available(perfumeId));
+                for (Map.Entry<Long, Integer> back : reserved.entrySet()) {
+                    hotStockLedger.unreserve(back.getKey(), back.getValue());
+                }
+                return "Not enough stock for perfume " + perfumeId;
+            }
+            reserved.put(perfumeId, line.getValue());
+        }
+        return null;
+    }
 
-        return Response.status(Response.Status.CREATED).entity(result).build();
+    private static void reject(BatchOrderResponse response, BatchOrderResult result, String error) {
+        result.status = Response.Status.BAD_REQUEST.getStatusCode();
+        result.error = error;
+        response.rejected++;
+    }
+
+    private void reportOutOfStock(Long userId, Long perfumeId, int requestedQty, Integer availableStock) {
+        HashMap<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("perfumeId", perfumeId);
+        payload.put("requestedQty", requestedQty);
+        payload.put("availableStock", availableStock);
+        deadLetterChannel.report(payload, "Out of stock for perfume " + perfumeId);
     }
 
     @PUT
@@ -166,6 +508,7 @@ public class OrderResource {
 
         if (req != null && req.status != null) {
             existing.setStatus(req.status);
+            resourceVersions.ordersChanged();
         }
         return Response.ok(existing).build();
     }
@@ -177,6 +520,7 @@ public class OrderResource {
         if (o == null) return Response.status(Response.Status.NOT_FOUND).build();
 
         em.remove(o);
+        resourceVersions.ordersChanged();
         return Response.noContent().build();
     }
 }
@@ -1,17 +1,58 @@
 package com.parfumerie.rest;
 
+import com.parfumerie.config.AppConfig;
 import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.PerfumeEventPublisher;
+import com.parfumerie.service.CatalogFacets;
+import com.parfumerie.service.CatalogImportReader;
+import com.parfumerie.service.CatalogSnapshot;
+import com.parfumerie.service.FieldSet;
+import com.parfumerie.service.PerfumeDelta;
+import com.parfumerie.service.PerfumeFilter;
+import com.parfumerie.service.PerfumeImportService;
+import com.parfumerie.service.PerfumeReadCoalescer;
+import com.parfumerie.service.PerfumeRules;
+import com.parfumerie.service.PerfumeSearchIndex;
+import com.parfumerie.service.PerfumeService;
+import com.parfumerie.service.PerfumeSort;
+import com.parfumerie.service.PerfumeSuggester;
+import com.parfumerie.service.ResourceVersions;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Perfume CRUD REST resource with basic validation rules.
+ * Listing accepts brand/gender/type/price/availability filters and returns either every
+ * match or a keyset page when limit/after/sort is given.
+ * ?fields= narrows rows to the named columns, which are the only ones read.
+ * The unfiltered list is written from a pre-encoded snapshot (gzip when accepted).
+ * Reads carry a strong ETag from the catalog version; a matching If-None-Match gets 304 without touching JPA.
  */
 @Path("perfumes")
 @Consumes(MediaType.APPLICATION_JSON)
@@ -19,45 +60,211 @@ import java.util.List;
 @Transactional
 public class PerfumeResource {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int IMPORT_CHUNK_SIZE = AppConfig.getInt("catalog.import.chunk-size", 500);
+    private static final int BATCH_CHUNK_SIZE = AppConfig.getInt("catalog.batch.chunk-size", 1000);
+    private static final int MAX_BATCH_SIZE = AppConfig.getInt("catalog.batch.max-size", 50_000);
+
+    public static class BatchUpdateResult {
+        public int requested;
+        public int updated;
+        public List<Long> notFound = new ArrayList<>();
+        public int unprocessed;
+        public String error;
+    }
+
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
+    @Inject
+    private PerfumeService perfumeService;
+
+    @Inject
+    private PerfumeSearchIndex searchIndex;
+
+    @Inject
+    private PerfumeSuggester suggester;
+
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @Inject
+    private ResourceVersions resourceVersions;
+
+    @Inject
+    private CatalogSnapshot catalogSnapshot;
+
+    @Inject
+    private PerfumeReadCoalescer readCoalescer;
+
+    @Inject
+    private PerfumeImportService perfumeImportService;
+
+    @Inject
+    private CatalogFacets catalogFacets;
+
     private Response validateAndApplyStockRules(Perfume p) {
-        if (p == null) {
+        String violation = PerfumeRules.violation(p);
+        if (violation != null) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Body is required").build();
+                    .entity(violation).build();
         }
-        if (p.getName() == null || p.getName().isBlank()) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("name is required").build();
+        return null; 
+    }
+
+    @GET
+    public Response getAll(@QueryParam("limit") Integer limit,
+                           @QueryParam("after") String after,
+                           @QueryParam("sort") String sort,
+                           @QueryParam("brand") String brand,
+                           @QueryParam("gender") String gender,
+                           @QueryParam("type") String type,
+                           @QueryParam("minPrice") BigDecimal minPrice,
+                           @QueryParam("maxPrice") BigDecimal maxPrice,
+                           @QueryParam("available") Boolean available,
+                           @QueryParam("fields") String fields,
+                           @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                           @Context Request request) {
+        PerfumeFilter filter = new PerfumeFilter();
+        filter.brand = blankToNull(brand);
+        filter.gender = blankToNull(gender);
+        filter.type = blankToNull(type);
+        filter.minPrice = minPrice;
+        filter.maxPrice = maxPrice;
+        filter.available = available;
+
+        FieldSet fieldSet;
+        try {
+            fieldSet = FieldSet.parse(fields, FieldSet.PERFUME);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
 
-        Integer stock = p.getStock();
+        if (limit == null && after == null && sort == null && filter.isEmpty() && fieldSet == null) {
+            return fullCatalog(acceptEncoding, request);
+        }
 
-        
-        if (stock != null && stock < 0) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("stock must be >= 0").build();
+        EntityTag tag = resourceVersions.catalogTag();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.build();
+
+        try {
+            filter.validate();
+            if (limit == null && after == null && sort == null) {
+                return Response.ok(streamPerfumes(filter, fieldSet), MediaType.APPLICATION_JSON_TYPE).tag(tag).build();
+            }
+
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("limit must be between 1 and " + MAX_PAGE_SIZE).build();
+            }
+            return Response.ok(perfumeService.findPage(PerfumeSort.parse(sort), after, pageSize, filter, fieldSet)).tag(tag).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
+    }
 
-        if (p.getAvailable() == null) {
-            p.setAvailable(true);
+    /**
+     * Serves the pre-encoded snapshot; falls back to a live query while a newer snapshot is being built.
+     */
+    private Response fullCatalog(String acceptEncoding, Request request) {
+        boolean gzip = CatalogSnapshot.acceptsGzip(acceptEncoding);
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.current();
+        if (snapshot == null) {
+            EntityTag tag = resourceVersions.catalogTag();
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) return notModified.build();
+            return Response.ok(streamPerfumes(null, null), MediaType.APPLICATION_JSON_TYPE).tag(tag).build();
         }
 
-        return null; 
+        EntityTag tag = gzip ? snapshot.gzipTag : snapshot.tag;
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+
+        Response.ResponseBuilder ok = Response.ok(gzip ? snapshot.gzip : snapshot.json, MediaType.APPLICATION_JSON_TYPE)
+                .tag(tag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) ok.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return ok.build();
+    }
+
+    private StreamingOutput streamPerfumes(PerfumeFilter filter, FieldSet fieldSet) {
+        if (fieldSet != null) {
+            return JsonStreaming.array((g, afterId) -> {
+                List<Tuple> rows = perfumeService.findChunk(filter, afterId, JsonStreaming.CHUNK_SIZE, fieldSet);
+                if (rows.isEmpty()) return null;
+                for (Tuple row : rows) {
+                    JsonStreaming.writeTuple(g, fieldSet, row);
+                }
+                return JsonStreaming.next(rows.size(), rows.get(rows.size() - 1).get("id", Long.class));
+            });
+        }
+        return JsonStreaming.array((g, afterId) -> {
+            List<Perfume> rows = perfumeService.findChunk(filter, afterId, JsonStreaming.CHUNK_SIZE);
+            if (rows.isEmpty()) return null;
+            for (Perfume p : rows) {
+                JsonStreaming.writePerfume(g, p);
+            }
+            return JsonStreaming.next(rows.size(), rows.get(rows.size() - 1).getId());
+        });
     }
 
     @GET
-    public List<Perfume> getAll() {
-        return em.createQuery("SELECT p FROM Perfume p", Perfume.class).getResultList();
+    @Path("search")
+    public Response search(@QueryParam("q") String q, @QueryParam("limit") Integer limit) {
+        if (q == null || q.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("q is required").build();
+        }
+        int max = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<PerfumeSearchIndex.Hit> hits = searchIndex.search(q, max);
+        if (hits.isEmpty()) return Response.ok(List.of()).build();
+
+        List<Long> ids = hits.stream().map(h -> h.perfumeId).toList();
+        Map<Long, Perfume> byId = new HashMap<>();
+        em.createQuery("SELECT p FROM Perfume p WHERE p.id IN :ids", Perfume.class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(p -> byId.put(p.getId(), p));
+
+        List<Perfume> ranked = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Perfume p = byId.get(id);
+            if (p != null) ranked.add(p);
+        }
+        return Response.ok(ranked).build();
+    }
+
+    @GET
+    @Path("suggest")
+    public Response suggest(@QueryParam("prefix") String prefix, @QueryParam("limit") Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return Response.ok(List.of()).build();
+        }
+        int max = limit == null ? MAX_SUGGESTIONS : Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return Response.ok(suggester.suggest(prefix, max)).build();
+    }
+
+    @GET
+    @Path("facets")
+    public CatalogFacets.Facets facets() {
+        return catalogFacets.getFacets();
     }
 
     @GET
     @Path("{id}")
-    public Response getById(@PathParam("id") Long id) {
-        Perfume p = em.find(Perfume.class, id);
-        if (p == null) return Response.status(Response.Status.NOT_FOUND).build();
-        return Response.ok(p).build();
+    public Response getById(@PathParam("id") Long id, @Context Request request) {
+        long version = resourceVersions.catalogVersion();
+        EntityTag tag = resourceVersions.catalogTag(version);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) return notModified.build();
+
+        byte[] json = readCoalescer.load(id, version);
+        if (json == null) return Response.status(Response.Status.NOT_FOUND).build();
+        return Response.ok(json, MediaType.APPLICATION_JSON_TYPE).tag(tag).build();
     }
 
     @POST
@@ -66,30 +273,161 @@ public class PerfumeResource {
         if (validation != null) return validation;
 
         em.persist(perfume);
+        perfumeEventPublisher.publishCreated(perfume);
         return Response.status(Response.Status.CREATED).entity(perfume).build();
     }
 
+    /**
+     * Bulk upsert from CSV (text/csv, header line first) or NDJSON. Rows are read as they arrive and
+     * written in chunks, each in its own transaction; the response is NDJSON with one line per
+     * rejected row, a progress line per chunk and a final summary.
+     */
+    @POST
+    @Path("import")
+    @Consumes({"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN})
+    @Produces("application/x-ndjson")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response importCatalog(InputStream body, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType) {
+        CatalogImportReader reader;
+        try {
+            reader = new CatalogImportReader(body, CatalogImportReader.Format.of(contentType));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN_TYPE).entity(e.getMessage()).build();
+        }
+
+        StreamingOutput progress = out -> {
+            int rows = 0, created = 0, updated = 0, failed = 0;
+            List<CatalogImportReader.Row> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            CatalogImportReader.Row row;
+            do {
+                row = reader.next();
+                if (row != null) chunk.add(row);
+                if (chunk.size() == IMPORT_CHUNK_SIZE || (row == null && !chunk.isEmpty())) {
+                    rows += chunk.size();
+                    try {
+                        PerfumeImportService.ChunkResult result = perfumeImportService.importChunk(chunk);
+                        created += result.created;
+                        updated += result.updated;
+                        failed += result.errors.size();
+                        for (PerfumeImportService.RowError error : result.errors) {
+                            writeLine(out, importError(error.line, error.message));
+                        }
+                    } catch (RuntimeException ex) {
+                        failed += chunk.size();
+                        String message = "chunk rolled back: " + rootMessage(ex);
+                        for (CatalogImportReader.Row rejected : chunk) {
+                            writeLine(out, importError(rejected.line, message));
+                        }
+                    }
+                    chunk.clear();
+                    writeLine(out, importSummary("progress", rows, created, updated, failed));
+                }
+            } while (row != null);
+            writeLine(out, importSummary("done", rows, created, updated, failed));
+        };
+        return Response.ok(progress, "application/x-ndjson").build();
+    }
+
+    private static JsonObject importError(int line, String message) {
+        return Json.createObjectBuilder()
+                .add("type", "error")
+                .add("line", line)
+                .add("message", message)
+                .build();
+    }
+
+    private static JsonObject importSummary(String type, int rows, int created, int updated, int failed) {
+        return Json.createObjectBuilder()
+                .add("type", type)
+                .add("rows", rows)
+                .add("created", created)
+                .add("updated", updated)
+                .add("failed", failed)
+                .build();
+    }
+
+    private static void writeLine(OutputStream out, JsonObject line) throws IOException {
+        out.write((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String rootMessage(Throwable ex) {
+        while (ex.getCause() != null) ex = ex.getCause();
+        return ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+    }
+
+    /**
+     * Applies price/stock/availability deltas with set-based updates, a chunk per transaction.
+     * Deltas for the same id are merged (later values win). Caches, search and the catalog
+     * version are notified once for the whole batch, covering every chunk that committed.
+     */
+    @PUT
+    @Path("batch")
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response updateBatch(List<PerfumeDelta> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("at least one delta is required").build();
+        }
+        if (deltas.size() > MAX_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("at most " + MAX_BATCH_SIZE + " deltas per batch").build();
+        }
+
+        Map<Long, PerfumeDelta> merged = new LinkedHashMap<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            PerfumeDelta d = deltas.get(i);
+            String violation = d == null ? "delta is required" : d.violation();
+            if (violation != null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("delta " + i + ": " + violation).build();
+            }
+            merged.merge(d.id, d, (a, b) -> {
+                if (b.price != null) a.price = b.price;
+                if (b.stock != null) a.stock = b.stock;
+                if (b.available != null) a.available = b.available;
+                return a;
+            });
+        }
+
+        List<PerfumeDelta> pending = new ArrayList<>(merged.values());
+        BatchUpdateResult result = new BatchUpdateResult();
+        result.requested = pending.size();
+        List<Long> written = new ArrayList<>(pending.size());
+        int done = 0;
+        try {
+            while (done < pending.size()) {
+                List<PerfumeDelta> chunk = pending.subList(done, Math.min(done + BATCH_CHUNK_SIZE, pending.size()));
+                List<Long> ids = perfumeService.applyDeltas(chunk);
+                Set<Long> chunkWritten = new HashSet<>(ids);
+                for (PerfumeDelta d : chunk) {
+                    if (!chunkWritten.contains(d.id)) result.notFound.add(d.id);
+                }
+                written.addAll(ids);
+                done += chunk.size();
+            }
+        } catch (RuntimeException ex) {
+            result.error = rootMessage(ex);
+        } finally {
+            perfumeEventPublisher.publishBatchUpdated(written);
+        }
+
+        result.updated = written.size();
+        result.unprocessed = pending.size() - done;
+        Response.Status status = result.error == null ? Response.Status.OK : Response.Status.INTERNAL_SERVER_ERROR;
+        return Response.status(status).entity(result).build();
+    }
+
     @PUT
     @Path("{id}")
     public Response update(@PathParam("id") Long id, Perfume data) {
         Perfume existing = em.find(Perfume.class, id);
         if (existing == null) return Response.status(Response.Status.NOT_FOUND).build();
 
-        if (data.getName() != null) existing.setName(data.getName());
-        if (data.getBrand() != null) existing.setBrand(data.getBrand());
-        if (data.getPrice() != null) existing.setPrice(data.getPrice());
-        if (data.getStock() != null) existing.setStock(data.getStock());
-        if (data.getFormat() != null) existing.setFormat(data.getFormat());
-        if (data.getDescription() != null) existing.setDescription(data.getDescription());
-        if (data.getGender() != null) existing.setGender(data.getGender());
-        if (data.getType() != null) existing.setType(data.getType());
-        if (data.getComment() != null) existing.setComment(data.getComment());
-        if (data.getAvailable() != null) existing.setAvailable(data.getAvailable());
+        PerfumeRules.merge(existing, data);
 
         Response validation = validateAndApplyStockRules(existing);
         if (validation != null) return validation;
 
-        
+        perfumeEventPublisher.publishUpdated(existing);
         return Response.ok(existing).build();
     }
 
@@ -99,6 +437,11 @@ public class PerfumeResource {
         Perfume p = em.find(Perfume.class, id);
         if (p == null) return Response.status(Response.Status.NOT_FOUND).build();
         em.remove(p);
+        perfumeEventPublisher.publishDeleted(p);
         return Response.noContent().build();
     }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
 }
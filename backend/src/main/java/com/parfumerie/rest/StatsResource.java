@@ -0,0 +1,97 @@
+package com.parfumerie.rest;
+
+import com.parfumerie.service.CatalogSnapshot;
+import com.parfumerie.service.CredentialCache;
+import com.parfumerie.service.HotStockLedger;
+import com.parfumerie.service.LoginThrottle;
+import com.parfumerie.service.PasswordHasher;
+import com.parfumerie.service.PerfumeReadCoalescer;
+import com.parfumerie.service.SharedEntityCache;
+import com.parfumerie.service.UserCache;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.Map;
+
+/**
+ * Exposes runtime counters of the in-memory caches and worker pools for monitoring.
+ */
+@Path("stats")
+@Produces(MediaType.APPLICATION_JSON)
+public class StatsResource {
+
+    @Inject
+    private CredentialCache credentialCache;
+
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private LoginThrottle loginThrottle;
+
+    @Inject
+    private UserCache userCache;
+
+    @Inject
+    private CatalogSnapshot catalogSnapshot;
+
+    @Inject
+    private PerfumeReadCoalescer perfumeReadCoalescer;
+
+    @Inject
+    private SharedEntityCache sharedEntityCache;
+
+    @Inject
+    private HotStockLedger hotStockLedger;
+
+    @GET
+    @Path("credentials")
+    public CredentialCache.Stats getCredentialCache() {
+        return credentialCache.getStats();
+    }
+
+    @GET
+    @Path("hashing")
+    public PasswordHasher.Stats getHashing() {
+        return passwordHasher.getStats();
+    }
+
+    @GET
+    @Path("login-throttle")
+    public LoginThrottle.Stats getLoginThrottle() {
+        return loginThrottle.getStats();
+    }
+
+    @GET
+    @Path("users")
+    public UserCache.Stats getUserCache() {
+        return userCache.getStats();
+    }
+
+    @GET
+    @Path("catalog-snapshot")
+    public CatalogSnapshot.Stats getCatalogSnapshot() {
+        return catalogSnapshot.getStats();
+    }
+
+    @GET
+    @Path("perfume-reads")
+    public PerfumeReadCoalescer.Stats getPerfumeReads() {
+        return perfumeReadCoalescer.getStats();
+    }
+
+    @GET
+    @Path("entity-cache")
+    public Map<String, SharedEntityCache.EntityStats> getEntityCache() {
+        return sharedEntityCache.getStats();
+    }
+
+    @GET
+    @Path("hot-stock")
+    public HotStockLedger.Stats getHotStock() {
+        return hotStockLedger.getStats();
+    }
+}
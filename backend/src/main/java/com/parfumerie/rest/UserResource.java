@@ -1,32 +1,59 @@
 package com.parfumerie.rest;
 
 import com.parfumerie.domain.User;
+import com.parfumerie.filter.AuthenticatedUser;
 import com.parfumerie.messaging.UserCreatedProducer;
+import com.parfumerie.service.HashingOverloadedException;
+import com.parfumerie.service.OrderService;
+import com.parfumerie.service.PasswordHasher;
 import com.parfumerie.service.UserService;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * User registration and profile update endpoints with best-effort JMS dispatch.
+ * Registration hashes the password on the bounded hashing pool and completes asynchronously.
+ * Also serves each customer's own order history, a keyset page at a time.
  */
 @Path("users")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class UserResource {
 
+    private static final int DEFAULT_ORDERS_PAGE_SIZE = 20;
+    private static final int MAX_ORDERS_PAGE_SIZE = 100;
+
     @Inject
     private UserService userService;
 
     @Inject
     private UserCreatedProducer userCreatedProducer;
 
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private OrderService orderService;
+
+    @Resource
+    private ManagedExecutorService managedExecutor;
+
     public static class CreateUserRequest {
         public String firstName;
         public String lastName;
@@ -46,14 +73,27 @@ public class UserResource {
     }
 
     @POST
-    public Response create(CreateUserRequest req) {
+    public CompletionStage<Response> create(CreateUserRequest req) {
         if (req == null) {
-            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid payload").build();
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.BAD_REQUEST).entity("Invalid payload").build());
+        }
+
+        try {
+            userService.validateNewUser(req.firstName, req.lastName, req.email, req.phone, req.password);
+            return passwordHasher.hash(req.password)
+                    .thenApplyAsync(hash -> register(req, hash), managedExecutor);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(invalidRequest(e));
+        } catch (HashingOverloadedException e) {
+            return CompletableFuture.completedFuture(HashingOverloadedMapper.serviceUnavailable(e));
         }
+    }
 
+    private Response register(CreateUserRequest req, String passwordHash) {
         try {
-            User created = userService.createUser(
-                    req.firstName, req.lastName, req.email, req.phone, req.password, req.address, null
+            User created = userService.registerUser(
+                    req.firstName, req.lastName, req.email, req.phone, passwordHash, req.address, null
             );
             
             try {
@@ -65,11 +105,7 @@ public class UserResource {
                     .entity(AuthResource.UserResponse.from(created))
                     .build();
         } catch (IllegalArgumentException e) {
-            String msg = e.getMessage() == null ? "Invalid request" : e.getMessage();
-            Response.Status status = msg.toLowerCase().contains("email") && msg.toLowerCase().contains("deja")
-                    ? Response.Status.CONFLICT
-                    : Response.Status.BAD_REQUEST;
-            return Response.status(status).entity(msg).build();
+            return invalidRequest(e);
         }
     }
 
@@ -95,14 +131,51 @@ public class UserResource {
             }
             return Response.ok(AuthResource.UserResponse.from(updated)).build();
         } catch (IllegalArgumentException e) {
-            String msg = e.getMessage() == null ? "Invalid request" : e.getMessage();
-            Response.Status status = msg.toLowerCase().contains("email") && msg.toLowerCase().contains("deja")
-                    ? Response.Status.CONFLICT
-                    : Response.Status.BAD_REQUEST;
-            return Response.status(status).entity(msg).build();
+            return invalidRequest(e);
         }
     }
 
+    /**
+     * The user's orders as summaries, newest first; pass nextCursor back as ?before= for older ones.
+     * Only the user themself or an admin may read it.
+     */
+    @GET
+    @Path("{id}/orders")
+    public Response getOrders(@PathParam("id") Long id,
+                              @QueryParam("limit") Integer limit,
+                              @QueryParam("before") String before,
+                              @Context SecurityContext security) {
+        if (security == null || security.getUserPrincipal() == null) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        User user = userService.findUser(id);
+        if (user == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (!security.isUserInRole("ADMIN") && !id.equals(AuthenticatedUser.idOf(security.getUserPrincipal()))) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        int size = limit == null ? DEFAULT_ORDERS_PAGE_SIZE : limit;
+        if (size < 1 || size > MAX_ORDERS_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("limit must be between 1 and " + MAX_ORDERS_PAGE_SIZE).build();
+        }
+        try {
+            return Response.ok(orderService.findUserOrders(id, before, size)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    private Response invalidRequest(IllegalArgumentException e) {
+        String msg = e.getMessage() == null ? "Invalid request" : e.getMessage();
+        Response.Status status = msg.toLowerCase().contains("email") && msg.toLowerCase().contains("deja")
+                ? Response.Status.CONFLICT
+                : Response.Status.BAD_REQUEST;
+        return Response.status(status).entity(msg).build();
+    }
+
     private boolean hasUpdateFields(UpdateUserRequest req) {
         return req.firstName != null
                 || req.lastName != null
@@ -0,0 +1,262 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Facet counts for the catalog filters (brand, gender, type, format, price bucket), kept in memory
+ * and adjusted per changed perfume, so reading them costs O(facet values) instead of a GROUP BY.
+ * Dimensions count purchasable perfumes only: available and not out of stock. The availability
+ * facet splits the whole catalog into in-stock and out-of-stock.
+ */
+@ApplicationScoped
+public class CatalogFacets {
+
+    public static class Facets {
+        public int total;
+        public Map<String, Integer> brand;
+        public Map<String, Integer> gender;
+        public Map<String, Integer> type;
+        public Map<String, Integer> format;
+        public Map<String, Integer> price;
+        public Map<String, Integer> availability;
+    }
+
+    private static final int RELOAD_CHUNK = 1000;
+
+    private static final class Entry {
+        final String brand;
+        final String gender;
+        final String type;
+        final String format;
+        final String priceBucket;
+        final boolean purchasable;
+
+        Entry(String brand, String gender, String type, String format, String priceBucket, boolean purchasable) {
+            this.brand = brand;
+            this.gender = gender;
+            this.type = type;
+            this.format = format;
+            this.priceBucket = priceBucket;
+            this.purchasable = purchasable;
+        }
+    }
+
+    private final BigDecimal[] bucketBounds = parseBounds(AppConfig.getString("catalog.facets.price-buckets", "25,50,100,150"));
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Integer> brands = new HashMap<>();
+    private final Map<String, Integer> genders = new HashMap<>();
+    private final Map<String, Integer> types = new HashMap<>();
+    private final Map<String, Integer> formats = new HashMap<>();
+    private final Map<String, Integer> prices = new HashMap<>();
+    private int purchasable;
+    private boolean loaded;
+
+    /** Ids changed while a full load is reading the table; re-read once it is installed. */
+    private Set<Long> changedWhileLoading;
+    /** Ticket of the most recent re-read started per id; only that re-read may apply its row. */
+    private final Map<Long, Long> latestRead = new HashMap<>();
+    private long readSeq;
+
+    /** Serializes full loads so concurrent first readers run one table scan; never held with {@code this}. */
+    private final Object loadLock = new Object();
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    public Facets getFacets() {
+        ensureLoaded();
+        synchronized (this) {
+            Facets f = new Facets();
+            f.total = entries.size();
+            f.brand = new TreeMap<>(brands);
+            f.gender = new TreeMap<>(genders);
+            f.type = new TreeMap<>(types);
+            f.format = new TreeMap<>(formats);
+            f.price = orderedBuckets();
+            f.availability = new TreeMap<>(Map.of("inStock", purchasable, "outOfStock", entries.size() - purchasable));
+            return f;
+        }
+    }
+
+    /**
+     * Re-reads the changed perfumes. Rows are read without holding the monitor, so checkouts
+     * announcing stock changes never queue behind each other or behind a facet read.
+     */
+    public void onPerfumeChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        if (event == null) return;
+        refresh(event.getIds());
+    }
+
+    public void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event == null || !event.isRemote() || !event.concerns(Perfume.class)) return;
+        if (event.isTypeWide()) {
+            synchronized (this) {
+                loaded = false;
+                latestRead.clear();
+            }
+            return;
+        }
+        refresh(List.of(event.getEntityId()));
+    }
+
+    /**
+     * Scans the table outside the monitor and installs the result in one step; changes that
+     * committed during the scan are re-read afterwards.
+     */
+    private void ensureLoaded() {
+        synchronized (loadLock) {
+            synchronized (this) {
+                if (loaded) return;
+                changedWhileLoading = new HashSet<>();
+            }
+            List<Object[]> rows = em.createQuery(
+                    "SELECT p.id, p.brand, p.gender, p.type, p.format, p.price, p.stock, p.available FROM Perfume p",
+                    Object[].class).getResultList();
+            Set<Long> changed;
+            synchronized (this) {
+                entries.clear();
+                brands.clear();
+                genders.clear();
+                types.clear();
+                formats.clear();
+                prices.clear();
+                purchasable = 0;
+                for (Object[] r : rows) {
+                    replace((Long) r[0], entryOf(r));
+                }
+                loaded = true;
+                changed = changedWhileLoading;
+                changedWhileLoading = null;
+            }
+            refresh(new ArrayList<>(changed));
+        }
+    }
+
+    /**
+     * Re-reads the given perfumes (ids that no longer exist are dropped) and applies the difference
+     * under the monitor. A row is applied only by the latest re-read started for its id: that read
+     * began after every earlier change to the row had committed, so it is never older than theirs.
+     */
+    private void refresh(List<Long> ids) {
+        if (ids.isEmpty()) return;
+        long ticket;
+        synchronized (this) {
+            if (!loaded) {
+                if (changedWhileLoading != null) changedWhileLoading.addAll(ids);
+                return;
+            }
+            ticket = ++readSeq;
+            for (Long id : ids) latestRead.put(id, ticket);
+        }
+        for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + RELOAD_CHUNK, ids.size()));
+            Map<Long, Entry> fresh = new HashMap<>();
+            for (Object[] r : em.createQuery(
+                    "SELECT p.id, p.brand, p.gender, p.type, p.format, p.price, p.stock, p.available FROM Perfume p "
+                            + "WHERE p.id IN :ids", Object[].class)
+                    .setParameter("ids", chunk)
+                    .getResultList()) {
+                fresh.put((Long) r[0], entryOf(r));
+            }
+            synchronized (this) {
+                if (!loaded) return;
+                for (Long id : chunk) {
+                    if (latestRead.remove(id, ticket)) replace(id, fresh.get(id));
+                }
+            }
+        }
+    }
+
+    private void replace(Long id, Entry next) {
+        Entry previous = next == null ? entries.remove(id) : entries.put(id, next);
+        if (previous != null) apply(previous, -1);
+        if (next != null) apply(next, 1);
+    }
+
+    private void apply(Entry e, int delta) {
+        if (!e.purchasable) return;
+        purchasable += delta;
+        count(brands, e.brand, delta);
+        count(genders, e.gender, delta);
+        count(types, e.type, delta);
+        count(formats, e.format, delta);
+        count(prices, e.priceBucket, delta);
+    }
+
+    private static void count(Map<String, Integer> counts, String value, int delta) {
+        if (value == null) return;
+        counts.merge(value, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private Entry entryOf(Object[] r) {
+        return entryOf((String) r[1], (String) r[2], (String) r[3], (String) r[4],
+                (BigDecimal) r[5], (Integer) r[6], (Boolean) r[7]);
+    }
+
+    private Entry entryOf(String brand, String gender, String type, String format,
+                          BigDecimal price, Integer stock, Boolean available) {
+        boolean inStock = !Objects.equals(available, Boolean.FALSE) && (stock == null || stock > 0);
+        return new Entry(blankToNull(brand), blankToNull(gender), blankToNull(type), blankToNull(format),
+                bucketOf(price), inStock);
+    }
+
+    private String bucketOf(BigDecimal price) {
+        if (price == null) return null;
+        for (int i = 0; i < bucketBounds.length; i++) {
+            if (price.compareTo(bucketBounds[i]) < 0) {
+                return i == 0 ? "<" + bucketBounds[0].toPlainString()
+                        : bucketBounds[i - 1].toPlainString() + "-" + bucketBounds[i].toPlainString();
+            }
+        }
+        return ">=" + bucketBounds[bucketBounds.length - 1].toPlainString();
+    }
+
+    private Map<String, Integer> orderedBuckets() {
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        List<String> labels = new ArrayList<>();
+        labels.add("<" + bucketBounds[0].toPlainString());
+        for (int i = 1; i < bucketBounds.length; i++) {
+            labels.add(bucketBounds[i - 1].toPlainString() + "-" + bucketBounds[i].toPlainString());
+        }
+        labels.add(">=" + bucketBounds[bucketBounds.length - 1].toPlainString());
+        for (String label : labels) {
+            Integer n = prices.get(label);
+            if (n != null) ordered.put(label, n);
+        }
+        return ordered;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static BigDecimal[] parseBounds(String spec) {
+        List<BigDecimal> bounds = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            if (!part.isBlank()) bounds.add(new BigDecimal(part.trim()));
+        }
+        if (bounds.isEmpty()) bounds.add(BigDecimal.valueOf(50));
+        bounds.sort(BigDecimal::compareTo);
+        return bounds.toArray(new BigDecimal[0]);
+    }
+}
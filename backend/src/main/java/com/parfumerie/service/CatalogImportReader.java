@@ -0,0 +1,298 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParsingException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a supplier catalog one row at a time from CSV (header line first) or NDJSON (one object per line).
+ * Only the current record is held in memory, and records longer than {@link #MAX_RECORD_CHARS} are
+ * reported as errors rather than buffered.
+ */
+public class CatalogImportReader {
+
+    public static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    public static final Set<String> COLUMNS = Set.of(
+            "id", "name", "brand", "format", "description", "gender", "type", "stock", "available", "price", "comment");
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        public static Format of(String contentType) {
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")) return CSV;
+            return NDJSON;
+        }
+    }
+
+    /**
+     * One parsed input row: either a perfume (with the id to update, if any) or the reason it was rejected.
+     */
+    public static class Row {
+        public final int line;
+        public final Long id;
+        public final Perfume perfume;
+        public final String error;
+
+        Row(int line, Long id, Perfume perfume, String error) {
+            this.line = line;
+            this.id = id;
+            this.perfume = perfume;
+            this.error = error;
+        }
+
+        public static Row rejected(int line, String error) {
+            return new Row(line, null, null, error);
+        }
+    }
+
+    private final BufferedReader in;
+    private final Format format;
+    private final List<String> header;
+    private int line;
+    private int recordLine;
+    private boolean oversized;
+    private int fieldCount;
+
+    /**
+     * @throws IllegalArgumentException when the CSV header is missing or names an unknown column
+     */
+    public CatalogImportReader(InputStream body, Format format) {
+        this.in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        this.format = format;
+        if (format == Format.CSV) {
+            List<String> columns = nextCsvRecord();
+            if (columns == null) throw new IllegalArgumentException("CSV header is required");
+            if (oversized || fieldCount > COLUMNS.size()) {
+                throw new IllegalArgumentException("CSV header has more than " + COLUMNS.size() + " columns");
+            }
+            header = new ArrayList<>(columns.size());
+            for (String c : columns) {
+                String name = c.trim().toLowerCase(Locale.ROOT);
+                if (!COLUMNS.contains(name)) {
+                    throw new IllegalArgumentException("unknown column: " + c + " (allowed: " + String.join(", ", COLUMNS) + ")");
+                }
+                header.add(name);
+            }
+        } else {
+            header = null;
+        }
+    }
+
+    /**
+     * The next row, or null at end of input.
+     */
+    public Row next() {
+        return format == Format.CSV ? nextCsvRow() : nextJsonRow();
+    }
+
+    private Row nextCsvRow() {
+        List<String> fields;
+        do {
+            fields = nextCsvRecord();
+            if (fields == null) return null;
+        } while (fields.size() == 1 && fields.get(0).isBlank() && !oversized);
+
+        if (oversized) return Row.rejected(recordLine, "record longer than " + MAX_RECORD_CHARS + " characters");
+        if (fieldCount != header.size()) {
+            return Row.rejected(recordLine, "expected " + header.size() + " columns, found " + fieldCount);
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            values.put(header.get(i), fields.get(i));
+        }
+        return toRow(recordLine, values);
+    }
+
+    private Row nextJsonRow() {
+        String text;
+        do {
+            text = nextLine();
+            if (text == null) return null;
+        } while (text.isBlank() && !oversized);
+
+        if (oversized) return Row.rejected(recordLine, "record longer than " + MAX_RECORD_CHARS + " characters");
+        JsonObject object;
+        try (JsonReader reader = Json.createReader(new StringReader(text))) {
+            JsonValue value = reader.readValue();
+            if (value.getValueType() != JsonValue.ValueType.OBJECT) {
+                return Row.rejected(recordLine, "expected a JSON object");
+            }
+            object = value.asJsonObject();
+        } catch (JsonParsingException ex) {
+            return Row.rejected(recordLine, "invalid JSON: " + ex.getMessage());
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, JsonValue> e : object.entrySet()) {
+            if (!COLUMNS.contains(e.getKey())) {
+                return Row.rejected(recordLine, "unknown field: " + e.getKey());
+            }
+            JsonValue v = e.getValue();
+            if (v.getValueType() == JsonValue.ValueType.NULL) continue;
+            values.put(e.getKey(), v instanceof JsonString ? ((JsonString) v).getString() : v.toString());
+        }
+        return toRow(recordLine, values);
+    }
+
+    private static Row toRow(int line, Map<String, String> values) {
+        try {
+            Perfume p = new Perfume();
+            p.setName(text(values, "name"));
+            p.setBrand(text(values, "brand"));
+            p.setFormat(text(values, "format"));
+            p.setDescription(text(values, "description"));
+            p.setGender(text(values, "gender"));
+            p.setType(text(values, "type"));
+            p.setComment(text(values, "comment"));
+            String stock = text(values, "stock");
+            if (stock != null) p.setStock(parse("stock", stock, Integer::valueOf));
+            String price = text(values, "price");
+            if (price != null) p.setPrice(parse("price", price, BigDecimal::new));
+            String available = text(values, "available");
+            if (available != null) p.setAvailable(parseBoolean(available));
+            String id = text(values, "id");
+            return new Row(line, id == null ? null : parse("id", id, Long::valueOf), p, null);
+        } catch (IllegalArgumentException ex) {
+            return Row.rejected(line, ex.getMessage());
+        }
+    }
+
+    private static String text(Map<String, String> values, String column) {
+        String v = values.get(column);
+        if (v == null) return null;
+        v = v.trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private interface Parser<T> {
+        T parse(String value);
+    }
+
+    private static <T> T parse(String column, String value, Parser<T> parser) {
+        try {
+            return parser.parse(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid " + column + ": " + value);
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "1":
+            case "yes":
+                return Boolean.TRUE;
+            case "false":
+            case "0":
+            case "no":
+                return Boolean.FALSE;
+            default:
+                throw new IllegalArgumentException("invalid available: " + value);
+        }
+    }
+
+    /**
+     * One CSV record (RFC 4180 quoting, quoted fields may span lines), or null at end of input.
+     * Separators count toward {@link #MAX_RECORD_CHARS}, and fields past one more than the expected
+     * column count are counted in {@link #fieldCount} but not kept.
+     */
+    private List<String> nextCsvRecord() {
+        int maxFields = (header == null ? COLUMNS.size() : header.size()) + 1;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int length = 0;
+        oversized = false;
+        fieldCount = 0;
+        recordLine = line + 1;
+        try {
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int peek = in.read();
+                        if (peek == '"') {
+                            append(field, '"', ++length);
+                        } else {
+                            quoted = false;
+                            if (peek != -1) in.reset();
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        append(field, (char) c, ++length);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    if (++length > MAX_RECORD_CHARS) oversized = true;
+                    if (++fieldCount <= maxFields) fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    append(field, (char) c, ++length);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!any) return null;
+        if (++fieldCount <= maxFields) fields.add(field.toString());
+        return fields;
+    }
+
+    private String nextLine() {
+        StringBuilder text = new StringBuilder();
+        boolean any = false;
+        int length = 0;
+        oversized = false;
+        recordLine = line + 1;
+        try {
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (c == '\n') {
+                    line++;
+                    break;
+                }
+                if (c != '\r') append(text, (char) c, ++length);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return any ? text.toString() : null;
+    }
+
+    private void append(StringBuilder sb, char c, int length) {
+        if (length > MAX_RECORD_CHARS) {
+            oversized = true;
+            return;
+        }
+        sb.append(c);
+    }
+}
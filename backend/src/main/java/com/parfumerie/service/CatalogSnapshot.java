@@ -0,0 +1,194 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full perfume list pre-encoded as JSON bytes, plus a gzip copy, for GET /perfumes.
+ * Rebuilt in the background after catalog commits and swapped in atomically; a snapshot older
+ * than the current catalog version is never served.
+ */
+@ApplicationScoped
+public class CatalogSnapshot {
+
+    public static final class Snapshot {
+        public final long version;
+        public final byte[] json;
+        public final byte[] gzip;
+        public final EntityTag tag;
+        public final EntityTag gzipTag;
+
+        Snapshot(long version, byte[] json, byte[] gzip, EntityTag tag) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+            this.tag = tag;
+            this.gzipTag = new EntityTag(tag.getValue() + "-gz");
+        }
+    }
+
+    public static class Stats {
+        public long version;
+        public int perfumes;
+        public int jsonBytes;
+        public int gzipBytes;
+        public long hits;
+        public long fallbacks;
+        public long builds;
+        public long lastBuildMillis;
+    }
+
+    private final long rebuildDelayMs = AppConfig.getLong("catalog.snapshot.rebuild-delay-ms", 200);
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private volatile int perfumes;
+    private volatile long lastBuildMillis;
+
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Inject
+    private ResourceVersions resourceVersions;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    /**
+     * The snapshot for the current catalog version, or null (and a rebuild is queued) when it lags behind.
+     */
+    public Snapshot current() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null && snapshot.version == resourceVersions.catalogVersion()) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        fallbacks.incrementAndGet();
+        scheduleRebuild(0);
+        return null;
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] coding = part.trim().split(";");
+            if (!coding[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < coding.length; i++) {
+                String param = coding[i].trim().replace(" ", "");
+                if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+        scheduleRebuild(0);
+    }
+
+    public void onCatalogChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        scheduleRebuild(rebuildDelayMs);
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            s.version = snapshot.version;
+            s.jsonBytes = snapshot.json.length;
+            s.gzipBytes = snapshot.gzip.length;
+        }
+        s.perfumes = perfumes;
+        s.hits = hits.get();
+        s.fallbacks = fallbacks.get();
+        s.builds = builds.get();
+        s.lastBuildMillis = lastBuildMillis;
+        return s;
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            jsonb.close();
+        } catch (Exception ignored) {
+
+        }
+    }
+
+    /**
+     * Coalesces bursts of changes into one rebuild, and rebuilds again if the catalog moved while building.
+     */
+    private void scheduleRebuild(long delayMs) {
+        if (!rebuildPending.compareAndSet(false, true)) return;
+        try {
+            scheduler.schedule(() -> {
+                rebuildPending.set(false);
+                try {
+                    Snapshot built = build();
+                    current.set(built);
+                    if (built.version != resourceVersions.catalogVersion()) {
+                        scheduleRebuild(0);
+                    }
+                } catch (Exception ex) {
+                    System.err.println("Catalog snapshot rebuild failed: " + ex.getMessage());
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            rebuildPending.set(false);
+            System.err.println("Catalog snapshot rebuild not scheduled: " + ex.getMessage());
+        }
+    }
+
+    private Snapshot build() {
+        long started = System.nanoTime();
+        long version = resourceVersions.catalogVersion();
+        List<Perfume> all = em.createQuery("SELECT p FROM Perfume p ORDER BY p.id", Perfume.class).getResultList();
+        byte[] json = jsonb.toJson(all).getBytes(StandardCharsets.UTF_8);
+
+        perfumes = all.size();
+        builds.incrementAndGet();
+        Snapshot snapshot = new Snapshot(version, json, gzip(json), resourceVersions.catalogTag(version));
+        lastBuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return snapshot;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
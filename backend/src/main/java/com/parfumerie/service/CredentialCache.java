@@ -0,0 +1,159 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Role;
+import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, time-limited cache of verified Authorization headers so bcrypt runs once per credential.
+ * Entries are keyed by an HMAC of the header under a per-process random key; raw passwords are never kept.
+ */
+@ApplicationScoped
+public class CredentialCache {
+
+    public static class VerifiedCredential {
+        public final Long userId;
+        public final String email;
+        public final Role role;
+        final long expiresAt;
+
+        VerifiedCredential(Long userId, String email, Role role, long expiresAt) {
+            this.userId = userId;
+            this.email = email;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Stats {
+        public long hits;
+        public long misses;
+        public long evictions;
+        public long invalidations;
+        public int size;
+        public int maxSize;
+        public long ttlSeconds;
+    }
+
+    private final int maxSize = AppConfig.getInt("auth.cache.size", 10_000);
+    private final long ttlMillis = AppConfig.getLong("auth.cache.ttl-seconds", 300) * 1000L;
+    private final byte[] digestKey = randomKey();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LinkedHashMap<String, VerifiedCredential> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedCredential> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public VerifiedCredential get(String authorizationHeader) {
+        if (authorizationHeader == null) return null;
+        String key = digest(authorizationHeader);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            VerifiedCredential cached = entries.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            if (cached != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String authorizationHeader, Long userId, String email, Role role) {
+        if (authorizationHeader == null || userId == null || maxSize <= 0) return;
+        String key = digest(authorizationHeader);
+        VerifiedCredential credential =
+                new VerifiedCredential(userId, email, role, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, credential);
+        }
+    }
+
+    /**
+     * Drops every cached credential of a user; called when their password, email or role changes.
+     */
+    public void invalidateUser(Long userId) {
+        if (userId == null) return;
+        synchronized (entries) {
+            Iterator<VerifiedCredential> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (userId.equals(it.next().userId)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void onInvalidation(@Observes CacheInvalidationEvent event) {
+        if (event != null && event.concerns(User.class)) {
+            invalidateUser(event.getEntityId());
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.hits = hits.get();
+        s.misses = misses.get();
+        s.evictions = evictions.get();
+        s.invalidations = invalidations.get();
+        synchronized (entries) {
+            s.size = entries.size();
+        }
+        s.maxSize = maxSize;
+        s.ttlSeconds = ttlMillis / 1000L;
+        return s;
+    }
+
+    private String digest(String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(digestKey, "HmacSHA256"));
+            byte[] out = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 unavailable", ex);
+        }
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
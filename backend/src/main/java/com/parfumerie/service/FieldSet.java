@@ -0,0 +1,126 @@
+package com.parfumerie.service;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse fieldset from a {@code ?fields=a,b} parameter, turned into a tuple projection so that
+ * unrequested columns are neither read nor serialized. Each listing exposes a fixed set of
+ * names mapped to attribute paths; "id" is always selected because listings seek on it.
+ */
+public final class FieldSet {
+
+    public static final Map<String, String> PERFUME = fields(
+            "available", "available",
+            "brand", "brand",
+            "comment", "comment",
+            "description", "description",
+            "format", "format",
+            "gender", "gender",
+            "hotStock", "hotStock",
+            "id", "id",
+            "name", "name",
+            "price", "price",
+            "stock", "stock",
+            "type", "type");
+
+    public static final Map<String, String> ORDER = fields(
+            "id", "id",
+            "orderDate", "orderDate",
+            "paymentMethod", "paymentMethod",
+            "shippingAddress", "shippingAddress",
+            "status", "status",
+            "totalPrice", "totalPrice",
+            "userEmail", "user.email",
+            "userId", "user.id");
+
+    public static final Map<String, String> ORDER_ITEM = fields(
+            "id", "id",
+            "orderId", "order.id",
+            "perfumeId", "perfume.id",
+            "perfumeName", "perfume.name",
+            "quantity", "quantity",
+            "unitPrice", "unitPrice");
+
+    private final Map<String, String> allowed;
+    private final Map<String, String> selected;
+
+    private FieldSet(Map<String, String> allowed, Map<String, String> selected) {
+        this.allowed = allowed;
+        this.selected = selected;
+    }
+
+    /**
+     * Null when the parameter is absent or blank, meaning the full representation.
+     */
+    public static FieldSet parse(String fields, Map<String, String> allowed) {
+        if (fields == null || fields.isBlank()) return null;
+        List<String> requested = new ArrayList<>();
+        for (String f : fields.split(",")) {
+            String name = f.trim();
+            if (name.isEmpty()) continue;
+            if (!allowed.containsKey(name)) {
+                throw new IllegalArgumentException("unknown field: " + name + " (allowed: " + String.join(", ", allowed.keySet()) + ")");
+            }
+            requested.add(name);
+        }
+        return new FieldSet(allowed, Collections.emptyMap()).with(requested.toArray(new String[0]));
+    }
+
+    /**
+     * A copy that also selects the given names (always including id), kept in declaration order.
+     */
+    public FieldSet with(String... names) {
+        Map<String, String> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : allowed.entrySet()) {
+            String name = e.getKey();
+            if (name.equals("id") || selected.containsKey(name) || List.of(names).contains(name)) {
+                merged.put(name, e.getValue());
+            }
+        }
+        return new FieldSet(allowed, Collections.unmodifiableMap(merged));
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(selected.keySet());
+    }
+
+    public List<Selection<?>> selections(From<?, ?> root) {
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        selected.forEach((name, path) -> selections.add(resolve(root, path).alias(name)));
+        return selections;
+    }
+
+    public Map<String, Object> toMap(Tuple row) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String name : selected.keySet()) {
+            Object value = row.get(name);
+            if (value != null) map.put(name, value);
+        }
+        return map;
+    }
+
+    private static Path<?> resolve(From<?, ?> root, String path) {
+        Path<?> p = root;
+        for (String part : path.split("\\.")) {
+            p = p.get(part);
+        }
+        return p;
+    }
+
+    private static Map<String, String> fields(String... pairs) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
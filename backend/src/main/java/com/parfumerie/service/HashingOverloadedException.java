@@ -0,0 +1,21 @@
+package com.parfumerie.service;
+
+import jakarta.ejb.ApplicationException;
+
+/**
+ * Raised when the password hashing queue is full; mapped to 503 with Retry-After.
+ */
+@ApplicationException
+public class HashingOverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public HashingOverloadedException(int retryAfterSeconds) {
+        super("Password hashing queue is full");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,286 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.StockJournalEntry;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock for perfumes flagged hotStock, so flash-sale checkouts do not queue on their rows.
+ * A reservation is checked under a lock stripe and journalled in the order's transaction; committed
+ * journal rows are folded into perfumes.stock in coalesced batches, and leftovers from a crash are
+ * applied at startup. Available = stock - unflushed journal - in-flight reservations, re-read after
+ * every catalog change to the perfume. The ledger is per node: route a hot SKU's checkouts to one node.
+ * A flush that takes a perfume below zero (the routing was not respected) is logged and counted as oversold.
+ */
+@ApplicationScoped
+public class HotStockLedger {
+
+    public static class Stats {
+        public boolean enabled;
+        public int tracked;
+        public long reservations;
+        public long rejections;
+        public long released;
+        public long reloads;
+        public long flushes;
+        public long rowsFlushed;
+        public long lastFlushMillis;
+        public long oversold;
+    }
+
+    /** Guarded by the perfume's stripe lock. */
+    private static final class Entry {
+        int available;
+        int inFlight;
+        boolean stale = true;
+    }
+
+    private final boolean enabled = AppConfig.getBoolean("inventory.hot-stock.enabled", false);
+    private final long flushDelayMs = AppConfig.getLong("inventory.hot-stock.flush-ms", 500);
+    private final int flushBatch = Math.max(1, AppConfig.getInt("inventory.hot-stock.flush-batch", 5000));
+    private final ReentrantLock[] stripes = new ReentrantLock[Math.max(1, AppConfig.getInt("inventory.hot-stock.stripes", 64))];
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsFlushed = new AtomicLong();
+    private final AtomicLong oversold = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    @Inject
+    private HotStockWriter writer;
+
+    public HotStockLedger() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isHot(Perfume perfume) {
+        return enabled && perfume != null && Boolean.TRUE.equals(perfume.getHotStock()) && perfume.getStock() != null;
+    }
+
+    /**
+     * Takes {@code quantity} from the ledger for the caller's transaction and journals it there;
+     * false when too little is left. A rollback gives the quantity back.
+     */
+    public boolean reserve(Long id, int quantity) {
+        return apply(id, quantity, true);
+    }
+
+    /**
+     * Returns part of a reservation made earlier in the same transaction, journalled as a negative row.
+     */
+    public void unreserve(Long id, int quantity) {
+        apply(id, -quantity, false);
+    }
+
+    private boolean apply(Long id, int quantity, boolean checked) {
+        if (txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            throw new IllegalStateException("Hot stock reservations need an active transaction");
+        }
+
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            Entry entry = entries.computeIfAbsent(id, k -> new Entry());
+            if (entry.stale) reload(id, entry);
+            if (checked && entry.available < quantity) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            entry.available -= quantity;
+            entry.inFlight += quantity;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            em.persist(new StockJournalEntry(id, quantity));
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    settle(id, quantity, status == Status.STATUS_COMMITTED);
+                }
+            });
+        } catch (RuntimeException ex) {
+            settle(id, quantity, false);
+            throw ex;
+        }
+        if (checked) reservations.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * What the ledger currently holds for the perfume, or null when it is not tracked.
+     */
+    public Integer available(Long id) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            Entry entry = entries.get(id);
+            return entry == null ? null : entry.available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+        scheduleFlush(0);
+    }
+
+    public void onCatalogChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        if (entries.isEmpty()) return;
+        for (Long id : event.getIds()) {
+            markStale(id);
+        }
+    }
+
+    public void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event == null || !event.isRemote() || !event.concerns(Perfume.class) || entries.isEmpty()) return;
+        if (event.isTypeWide()) {
+            for (Long id : List.copyOf(entries.keySet())) markStale(id);
+            return;
+        }
+        markStale(event.getEntityId());
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.enabled = enabled;
+        s.tracked = entries.size();
+        s.reservations = reservations.get();
+        s.rejections = rejections.get();
+        s.released = released.get();
+        s.reloads = reloads.get();
+        s.flushes = flushes.get();
+        s.rowsFlushed = rowsFlushed.get();
+        s.lastFlushMillis = lastFlushMillis;
+        s.oversold = oversold.get();
+        return s;
+    }
+
+    private void settle(Long id, int quantity, boolean committed) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                entry.inFlight -= quantity;
+                if (!committed) entry.available += quantity;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (committed) {
+            scheduleFlush(flushDelayMs);
+        } else {
+            released.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stock and unflushed journal are read in one statement so a concurrent flush is seen either
+     * entirely or not at all. Reservations still in flight are not in the journal yet.
+     */
+    private void reload(Long id, Entry entry) {
+        List<?> result = em.createNativeQuery("SELECT p.stock - COALESCE((SELECT SUM(j.quantity) FROM stock_journal j "
+                        + "WHERE j.perfume_id = p.id), 0) FROM perfumes p WHERE p.id = ?1")
+                .setParameter(1, id)
+                .getResultList();
+        Number stock = result.isEmpty() ? Integer.valueOf(0) : (Number) result.get(0);
+        entry.available = stock == null ? Integer.MAX_VALUE : stock.intValue() - entry.inFlight;
+        entry.stale = false;
+        reloads.incrementAndGet();
+    }
+
+    private void markStale(Long id) {
+        if (id == null) return;
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry != null) entry.stale = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(Long id) {
+        return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+    }
+
+    /**
+     * Coalesces committed reservations into one flush per delay window, and keeps going while a
+     * flush comes back full.
+     */
+    private void scheduleFlush(long delayMs) {
+        if (!flushPending.compareAndSet(false, true)) return;
+        try {
+            scheduler.schedule(() -> {
+                flushPending.set(false);
+                try {
+                    long started = System.nanoTime();
+                    HotStockWriter.Flush flush = writer.flush(flushBatch);
+                    if (flush.rows == 0) return;
+                    flushes.incrementAndGet();
+                    rowsFlushed.addAndGet(flush.rows);
+                    lastFlushMillis = (System.nanoTime() - started) / 1_000_000;
+                    flush.negative.forEach((id, stock) -> {
+                        oversold.incrementAndGet();
+                        System.err.println("Hot stock oversold: perfume " + id + " is at " + stock
+                                + " after flush; is it reserved on more than one node?");
+                    });
+                    if (flush.rows == flushBatch) scheduleFlush(0);
+                } catch (Exception ex) {
+                    System.err.println("Hot stock flush failed: " + ex.getMessage());
+                    scheduleFlush(flushDelayMs);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            flushPending.set(false);
+            System.err.println("Hot stock flush not scheduled: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.PerfumeEventPublisher;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Write-behind for the hot-stock ledger: folds journal rows into perfumes.stock and deletes them in one transaction.
+ */
+@Stateless
+public class HotStockWriter {
+
+    public static class Flush {
+        public final int rows;
+        /** Perfumes the flush took below zero, with their resulting stock. */
+        public final Map<Long, Integer> negative;
+
+        Flush(int rows, Map<Long, Integer> negative) {
+            this.rows = rows;
+            this.negative = negative;
+        }
+    }
+
+    private static final int DELETE_CHUNK = 1000;
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @Inject
+    private SharedEntityCache sharedEntityCache;
+
+    /**
+     * Applies up to {@code maxRows} of the oldest journal rows as one UPDATE per perfume and reports
+     * how many rows were folded in. Rows are deleted by id, so reservations committing concurrently
+     * are left for the next flush rather than lost.
+     * The UPDATE is not guarded: the reservations are already sold. A perfume it takes below zero
+     * was oversold (two nodes reserving the same SKU, or stock lowered under the ledger) and is
+     * reported in the result rather than hidden.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Flush flush(int maxRows) {
+        List<Object[]> rows = em.createQuery(
+                        "SELECT j.id, j.perfumeId, j.quantity FROM StockJournalEntry j ORDER BY j.id", Object[].class)
+                .setMaxResults(maxRows)
+                .getResultList();
+        if (rows.isEmpty()) return new Flush(0, Map.of());
+
+        Map<Long, Integer> totals = new TreeMap<>();
+        List<Long> journalIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            journalIds.add((Long) row[0]);
+            totals.merge((Long) row[1], (Integer) row[2], Integer::sum);
+        }
+
+        for (Map.Entry<Long, Integer> total : totals.entrySet()) {
+            em.createQuery("UPDATE Perfume p SET p.stock = p.stock - :qty WHERE p.id = :id")
+                    .setHint(SharedEntityCache.INVALIDATE_HINT, false)
+                    .setParameter("qty", total.getValue())
+                    .setParameter("id", total.getKey())
+                    .executeUpdate();
+            sharedEntityCache.evictAfterWrite(Perfume.class, total.getKey());
+        }
+        for (int from = 0; from < journalIds.size(); from += DELETE_CHUNK) {
+            em.createQuery("DELETE FROM StockJournalEntry j WHERE j.id IN :ids")
+                    .setParameter("ids", journalIds.subList(from, Math.min(from + DELETE_CHUNK, journalIds.size())))
+                    .executeUpdate();
+        }
+
+        Map<Long, Integer> negative = new TreeMap<>();
+        for (Object[] row : em.createQuery("SELECT p.id, p.stock FROM Perfume p WHERE p.id IN :ids AND p.stock < 0",
+                        Object[].class)
+                .setParameter("ids", new ArrayList<>(totals.keySet()))
+                .getResultList()) {
+            negative.put((Long) row[0], (Integer) row[1]);
+        }
+
+        perfumeEventPublisher.publishBatchUpdated(new ArrayList<>(totals.keySet()));
+        return new Flush(rows.size(), negative);
+    }
+}
@@ -0,0 +1,74 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.IdempotencyRecord;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row operations behind {@link TableIdempotencyStore}; each commits on its own so other nodes see it at once.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+public class IdempotencyRecords {
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    public IdempotencyRecord find(String key) {
+        return em.find(IdempotencyRecord.class, key);
+    }
+
+    /**
+     * Fails with a persistence error when another request inserted the key first.
+     */
+    public void insert(String key, String fingerprint, LocalDateTime now, LocalDateTime expiresAt) {
+        em.persist(new IdempotencyRecord(key, fingerprint, now, expiresAt));
+        em.flush();
+    }
+
+    /**
+     * Reclaims an expired row, or a claim abandoned before {@code staleBefore}; false when someone else got it.
+     */
+    public boolean takeOver(String key, String fingerprint, LocalDateTime now, LocalDateTime staleBefore,
+                            LocalDateTime expiresAt) {
+        return em.createQuery("UPDATE IdempotencyRecord r SET r.fingerprint = :fp, r.body = NULL, "
+                        + "r.claimedAt = :now, r.expiresAt = :expires WHERE r.key = :key "
+                        + "AND (r.expiresAt < :now OR (r.body IS NULL AND r.claimedAt < :stale))")
+                .setParameter("fp", fingerprint)
+                .setParameter("now", now)
+                .setParameter("expires", expiresAt)
+                .setParameter("key", key)
+                .setParameter("stale", staleBefore)
+                .executeUpdate() == 1;
+    }
+
+    public void complete(String key, String body, LocalDateTime expiresAt) {
+        em.createQuery("UPDATE IdempotencyRecord r SET r.body = :body, r.expiresAt = :expires WHERE r.key = :key")
+                .setParameter("body", body)
+                .setParameter("expires", expiresAt)
+                .setParameter("key", key)
+                .executeUpdate();
+    }
+
+    public void release(String key) {
+        em.createQuery("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.body IS NULL")
+                .setParameter("key", key)
+                .executeUpdate();
+    }
+
+    @Schedule(minute = "*/5", hour = "*", persistent = false)
+    public void purgeExpired() {
+        int purged = em.createQuery("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " expired idempotency keys");
+        }
+    }
+}
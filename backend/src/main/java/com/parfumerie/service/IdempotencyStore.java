@@ -0,0 +1,48 @@
+package com.parfumerie.service;
+
+/**
+ * Remembers the 201 body produced for an Idempotency-Key so a retried request can be answered without running again.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * What a request carrying a key should do next.
+     */
+    final class Claim {
+
+        public enum Kind { NEW, REPLAY, MISMATCH, IN_PROGRESS }
+
+        public static final Claim NEW = new Claim(Kind.NEW, null);
+        public static final Claim MISMATCH = new Claim(Kind.MISMATCH, null);
+        public static final Claim IN_PROGRESS = new Claim(Kind.IN_PROGRESS, null);
+
+        public final Kind kind;
+        public final String body;
+
+        private Claim(Kind kind, String body) {
+            this.kind = kind;
+            this.body = body;
+        }
+
+        public static Claim replay(String body) {
+            return new Claim(Kind.REPLAY, body);
+        }
+    }
+
+    /**
+     * Claims {@code key} for this request (NEW), or returns the stored body (REPLAY). While another
+     * request holds the key this waits up to {@code waitMs} for it to finish. A key reused with a
+     * different fingerprint is a MISMATCH.
+     */
+    Claim claim(String key, String fingerprint, long waitMs);
+
+    /**
+     * Stores the body of a successful request and wakes any duplicates waiting on it.
+     */
+    void complete(String key, String body);
+
+    /**
+     * Drops a claim whose request did not succeed, so a retry runs again.
+     */
+    void release(String key);
+}
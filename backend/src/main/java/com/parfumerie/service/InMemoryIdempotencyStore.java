@@ -0,0 +1,129 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-node idempotency store: a bounded map in claim order, with results expiring after a TTL.
+ */
+@ApplicationScoped
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final class Entry {
+        final String fingerprint;
+        final long claimedAt;
+        final CompletableFuture<Void> settled = new CompletableFuture<>();
+        String body;
+        long expiresAt;
+
+        Entry(String fingerprint, long now, long ttlMs) {
+            this.fingerprint = fingerprint;
+            this.claimedAt = now;
+            this.expiresAt = now + ttlMs;
+        }
+    }
+
+    private final long ttlMs = AppConfig.getLong("orders.idempotency.ttl-ms", 24 * 60 * 60 * 1000L);
+    private final long claimMs = AppConfig.getLong("orders.idempotency.claim-ms", 30_000);
+    private final int maxEntries = AppConfig.getInt("orders.idempotency.max-entries", 10_000);
+
+    /**
+     * Over capacity, drops the oldest entry that is completed or an abandoned claim. A claim still
+     * in progress is never dropped, or its duplicate would run the order again; the map may briefly
+     * exceed its bound by the number of requests in flight instead.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= maxEntries) return false;
+            long now = System.currentTimeMillis();
+            Iterator<Entry> it = values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.body != null || entry.claimedAt + claimMs < now) {
+                    it.remove();
+                    entry.settled.complete(null);
+                    return false;
+                }
+            }
+            return false;
+        }
+    };
+
+    @Override
+    public Claim claim(String key, String fingerprint, long waitMs) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            CompletableFuture<Void> pending;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                evictExpired(now);
+                Entry entry = entries.get(key);
+                if (entry == null || (entry.body == null && entry.claimedAt + claimMs < now)) {
+                    if (entry != null) entry.settled.complete(null);
+                    entries.put(key, new Entry(fingerprint, now, ttlMs));
+                    return Claim.NEW;
+                }
+                if (!entry.fingerprint.equals(fingerprint)) return Claim.MISMATCH;
+                if (entry.body != null) return Claim.replay(entry.body);
+                pending = entry.settled;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return Claim.IN_PROGRESS;
+            try {
+                pending.get(remaining, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                return Claim.IN_PROGRESS;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Claim.IN_PROGRESS;
+            } catch (ExecutionException ex) {
+                return Claim.IN_PROGRESS;
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String body) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) return;
+            entry.body = body;
+            entry.expiresAt = System.currentTimeMillis() + ttlMs;
+        }
+        entry.settled.complete(null);
+    }
+
+    @Override
+    public void release(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null || entry.body != null) return;
+            entries.remove(key);
+        }
+        entry.settled.complete(null);
+    }
+
+    /**
+     * Entries are kept in claim order, so expired ones cluster at the head.
+     */
+    private void evictExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.body == null || entry.expiresAt >= now) break;
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limiter on logins, keyed by normalized email and by client address.
+ * The check itself takes a token from both buckets, so parallel attempts cannot all pass it before
+ * the first failure is recorded; the token is given back when the attempt succeeds or never ran.
+ * Buckets refill continuously and live in a bounded LRU map: a new key always gets a bucket,
+ * evicting the least recently used one, which is the most likely to have refilled.
+ */
+@ApplicationScoped
+public class LoginThrottle {
+
+    public static class Stats {
+        public int trackedKeys;
+        public int maxKeys;
+        public long rejected;
+        public long evicted;
+    }
+
+    private static final class Bucket {
+        final double tokens;
+        final long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final Limit emailLimit = new Limit(
+            AppConfig.getInt("auth.throttle.email.burst", 5),
+            AppConfig.getInt("auth.throttle.email.per-minute", 5));
+    private final Limit addressLimit = new Limit(
+            AppConfig.getInt("auth.throttle.address.burst", 20),
+            AppConfig.getInt("auth.throttle.address.per-minute", 30));
+    private final int maxKeys = AppConfig.getInt("auth.throttle.max-keys", 100_000);
+    private final boolean trustForwardedFor = AppConfig.getBoolean("auth.throttle.trust-forwarded-for", false);
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final LinkedHashMap<String, Bucket> buckets = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            if (size() <= maxKeys) return false;
+            evicted.incrementAndGet();
+            return true;
+        }
+    };
+
+    /**
+     * Returns 0 when an attempt may proceed, having taken a token from both buckets for it;
+     * otherwise takes nothing and returns the seconds until both buckets hold a token again.
+     */
+    public long retryAfterSeconds(String email, String address) {
+        String emailKey = emailKey(email);
+        String addressKey = addressKey(address);
+        long now = System.nanoTime();
+        double wait;
+        synchronized (buckets) {
+            wait = Math.max(waitSeconds(emailKey, emailLimit, now), waitSeconds(addressKey, addressLimit, now));
+            if (wait <= 0) {
+                take(emailKey, emailLimit, now);
+                take(addressKey, addressLimit, now);
+                return 0;
+            }
+        }
+        rejected.incrementAndGet();
+        return (long) Math.ceil(wait);
+    }
+
+    /**
+     * Gives back the tokens taken for an attempt that never reached password verification.
+     */
+    public void release(String email, String address) {
+        long now = System.nanoTime();
+        synchronized (buckets) {
+            refund(emailKey(email), emailLimit, now);
+            refund(addressKey(address), addressLimit, now);
+        }
+    }
+
+    /**
+     * A successful login clears the email's bucket and gives the address its token back.
+     */
+    public void recordSuccess(String email, String address) {
+        String key = emailKey(email);
+        long now = System.nanoTime();
+        synchronized (buckets) {
+            if (key != null) buckets.remove(key);
+            refund(addressKey(address), addressLimit, now);
+        }
+    }
+
+    public String clientAddress(HttpServletRequest request) {
+        if (request == null) return null;
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        synchronized (buckets) {
+            s.trackedKeys = buckets.size();
+        }
+        s.maxKeys = maxKeys;
+        s.rejected = rejected.get();
+        s.evicted = evicted.get();
+        return s;
+    }
+
+    private double waitSeconds(String key, Limit limit, long now) {
+        if (key == null) return 0;
+        Bucket b = buckets.get(key);
+        if (b == null) return 0;
+        double tokens = limit.refill(b, now);
+        return tokens >= 1.0 ? 0 : (1.0 - tokens) / limit.perSecond;
+    }
+
+    private void take(String key, Limit limit, long now) {
+        if (key == null) return;
+        Bucket b = buckets.get(key);
+        double tokens = b == null ? limit.burst : limit.refill(b, now);
+        buckets.put(key, new Bucket(Math.max(0, tokens - 1.0), now));
+    }
+
+    /**
+     * A bucket that is full again is dropped, since it is indistinguishable from no bucket.
+     */
+    private void refund(String key, Limit limit, long now) {
+        if (key == null) return;
+        Bucket b = buckets.get(key);
+        if (b == null) return;
+        double tokens = limit.refill(b, now) + 1.0;
+        if (tokens >= limit.burst) {
+            buckets.remove(key);
+        } else {
+            buckets.put(key, new Bucket(tokens, now));
+        }
+    }
+
+    private static String emailKey(String email) {
+        if (email == null || email.isBlank()) return null;
+        return "e:" + email.trim().toLowerCase();
+    }
+
+    private static String addressKey(String address) {
+        if (address == null || address.isBlank()) return null;
+        return "a:" + address;
+    }
+
+    private static final class Limit {
+        final double burst;
+        final double perSecond;
+
+        Limit(int burst, int perMinute) {
+            this.burst = Math.max(1, burst);
+            this.perSecond = Math.max(1, perMinute) / 60.0;
+        }
+
+        double refill(Bucket b, long now) {
+            double elapsed = (now - b.updatedAt) / 1e9;
+            return Math.min(burst, b.tokens + elapsed * perSecond);
+        }
+    }
+}
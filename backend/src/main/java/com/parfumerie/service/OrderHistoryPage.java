@@ -0,0 +1,63 @@
+package com.parfumerie.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One keyset page of a customer's orders, newest first; pass nextCursor back as "before" to continue
+ * (null on the last page). Orders without a date come after all dated ones, newest id first.
+ */
+public class OrderHistoryPage {
+
+    private static final String NULL_MARKER = "~";
+
+    public List<OrderSummary> items;
+    public String nextCursor;
+    public int limit;
+
+    public OrderHistoryPage() {}
+
+    public OrderHistoryPage(List<OrderSummary> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    /**
+     * Position of the last row served: its date (null once in the undated block) and id.
+     */
+    public static class Cursor {
+        public final LocalDateTime orderDate;
+        public final long id;
+
+        Cursor(LocalDateTime orderDate, long id) {
+            this.orderDate = orderDate;
+            this.id = id;
+        }
+
+        public boolean inNullBlock() {
+            return orderDate == null;
+        }
+    }
+
+    public static String encode(OrderSummary last) {
+        String raw = last.id + "|" + (last.orderDate == null ? NULL_MARKER : last.orderDate.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) throw new IllegalArgumentException("invalid cursor");
+            long id = Long.parseLong(parts[0]);
+            return new Cursor(NULL_MARKER.equals(parts[1]) ? null : LocalDateTime.parse(parts[1]), id);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+}
@@ -4,14 +4,25 @@ import com.parfumerie.domain.Order;
 import com.parfumerie.domain.OrderItem;
 import com.parfumerie.domain.Perfume;
 import com.parfumerie.domain.User;
+import com.parfumerie.messaging.PerfumeEventPublisher;
 
 import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for simple order creation with stock checks.
@@ -19,9 +30,24 @@ import java.util.List;
 @Stateless
 public class OrderService {
 
+    private static final String SUMMARY_SELECT = "SELECT NEW com.parfumerie.service.OrderSummary("
+            + "o.id, o.orderDate, o.status, o.totalPrice, o.paymentMethod, o.shippingAddress) FROM Order o ";
+
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @Inject
+    private ResourceVersions resourceVersions;
+
+    @Inject
+    private PerfumeService perfumeService;
+
+    @Inject
+    private HotStockLedger hotStockLedger;
+
     public Order findById(Long id) {
         return em.find(Order.class, id);
     }
@@ -31,7 +57,108 @@ public class OrderService {
                  .getResultList();
     }
 
+    /**
+     * Next batch of orders in id order after {@code afterId}, users fetched, items left unloaded.
+     */
+    public List<Order> findChunk(long afterId, int size) {
+        return em.createQuery("SELECT o FROM Order o JOIN FETCH o.user WHERE o.id > :after ORDER BY o.id", Order.class)
+                 .setParameter("after", afterId)
+                 .setMaxResults(size)
+                 .getResultList();
+    }
+
+    /**
+     * Item rows {orderId, itemId, quantity, unitPrice, perfume} of the given orders, without loading the orders again.
+     */
+    public List<Object[]> findItemRows(List<Long> orderIds) {
+        if (orderIds.isEmpty()) return List.of();
+        return em.createQuery("SELECT oi.order.id, oi.id, oi.quantity, oi.unitPrice, p FROM OrderItem oi JOIN oi.perfume p "
+                        + "WHERE oi.order.id IN :ids ORDER BY oi.id", Object[].class)
+                 .setParameter("ids", orderIds)
+                 .getResultList();
+    }
+
+    /**
+     * Next batch of item rows {orderId, itemId, quantity, unitPrice, perfume} in item id order after {@code afterId}.
+     */
+    public List<Object[]> findItemChunk(long afterId, int size) {
+        return em.createQuery("SELECT oi.order.id, oi.id, oi.quantity, oi.unitPrice, p FROM OrderItem oi JOIN oi.perfume p "
+                        + "WHERE oi.id > :after ORDER BY oi.id", Object[].class)
+                 .setParameter("after", afterId)
+                 .setMaxResults(size)
+                 .getResultList();
+    }
+    /**
+     * Next batch of orders after {@code afterId}, reading only the selected columns.
+     */
+    public List<Tuple> findChunk(long afterId, int size, FieldSet fields) {
+        return tupleChunk(Order.class, fields, afterId, size);
+    }
+
+    /**
+     * Next batch of order items after {@code afterId}, reading only the selected columns.
+     */
+    public List<Tuple> findItemChunk(long afterId, int size, FieldSet fields) {
+        return tupleChunk(OrderItem.class, fields, afterId, size);
+    }
+
+    private List<Tuple> tupleChunk(Class<?> entity, FieldSet fields, long afterId, int size) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<?> root = cq.from(entity);
+        Path<Long> id = root.get("id");
+        cq.multiselect(fields.selections(root)).where(cb.greaterThan(id, afterId)).orderBy(cb.asc(id));
+        return em.createQuery(cq).setMaxResults(size).getResultList();
+    }
     
+    /**
+     * A page of one user's orders, newest first, seeking on (orderDate, id) through idx_orders_user_date;
+     * rows are projected straight into summaries and line counts come from one grouped query.
+     */
+    public OrderHistoryPage findUserOrders(Long userId, String before, int limit) {
+        OrderHistoryPage.Cursor cursor = OrderHistoryPage.decode(before);
+        int fetch = limit + 1;
+
+        List<OrderSummary> rows = new ArrayList<>();
+        if (cursor == null || !cursor.inNullBlock()) {
+            String jpql = SUMMARY_SELECT + "WHERE o.user.id = :user AND o.orderDate IS NOT NULL "
+                    + (cursor == null ? "" : "AND (o.orderDate < :date OR (o.orderDate = :date AND o.id < :id)) ")
+                    + "ORDER BY o.orderDate DESC, o.id DESC";
+            TypedQuery<OrderSummary> q = em.createQuery(jpql, OrderSummary.class).setParameter("user", userId);
+            if (cursor != null) q.setParameter("date", cursor.orderDate).setParameter("id", cursor.id);
+            rows.addAll(q.setMaxResults(fetch).getResultList());
+        }
+        if (rows.size() < fetch) {
+            Long afterId = cursor != null && cursor.inNullBlock() ? cursor.id : null;
+            String jpql = SUMMARY_SELECT + "WHERE o.user.id = :user AND o.orderDate IS NULL "
+                    + (afterId == null ? "" : "AND o.id < :id ")
+                    + "ORDER BY o.id DESC";
+            TypedQuery<OrderSummary> q = em.createQuery(jpql, OrderSummary.class).setParameter("user", userId);
+            if (afterId != null) q.setParameter("id", afterId);
+            rows.addAll(q.setMaxResults(fetch - rows.size()).getResultList());
+        }
+
+        String next = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            next = OrderHistoryPage.encode(rows.get(rows.size() - 1));
+        }
+        countItems(rows);
+        return new OrderHistoryPage(rows, next, limit);
+    }
+
+    private void countItems(List<OrderSummary> summaries) {
+        if (summaries.isEmpty()) return;
+        Map<Long, OrderSummary> byId = new HashMap<>();
+        for (OrderSummary s : summaries) byId.put(s.id, s);
+        for (Object[] row : em.createQuery("SELECT oi.order.id, COUNT(oi) FROM OrderItem oi "
+                        + "WHERE oi.order.id IN :ids GROUP BY oi.order.id", Object[].class)
+                .setParameter("ids", byId.keySet())
+                .getResultList()) {
+            byId.get((Long) row[0]).itemCount = ((Number) row[1]).longValue();
+        }
+    }
+
     public Order createOrder(Long userId, Long perfumeId, int quantity) {
         if (quantity <= 0) throw new IllegalArgumentException("quantity must be > 0");
 
@@ -41,7 +168,11 @@ public class OrderService {
         Perfume perfume = em.find(Perfume.class, perfumeId);
         if (perfume == null) throw new IllegalArgumentException("Perfume not found: " + perfumeId);
 
-        if (perfume.getStock() != null && perfume.getStock() < quantity) {
+        boolean hot = hotStockLedger.isHot(perfume);
+        boolean taken = hot
+                ? hotStockLedger.reserve(perfumeId, quantity)
+                : perfumeService.decrementStock(perfumeId, quantity);
+        if (!taken) {
             throw new IllegalArgumentException("Not enough stock");
         }
 
@@ -65,8 +196,8 @@ public class OrderService {
         em.persist(item);
 
         
-        if (perfume.getStock() != null) {
-            perfume.setStock(perfume.getStock() - quantity);
+        if (!hot && perfume.getStock() != null) {
+            perfumeEventPublisher.publishBatchUpdated(List.of(perfumeId));
         }
 
         BigDecimal total = (perfume.getPrice() == null)
@@ -81,6 +212,7 @@ public class OrderService {
         Order existing = em.find(Order.class, id);
         if (existing == null) return false;
         em.remove(existing);
+        resourceVersions.ordersChanged();
         return true;
     }
 }
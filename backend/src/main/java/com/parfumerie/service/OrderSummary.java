@@ -0,0 +1,30 @@
+package com.parfumerie.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of a customer's order history: the order's own columns and its line count, without user or items.
+ */
+public class OrderSummary {
+
+    public Long id;
+    public LocalDateTime orderDate;
+    public String status;
+    public BigDecimal totalPrice;
+    public String paymentMethod;
+    public String shippingAddress;
+    public long itemCount;
+
+    public OrderSummary() {}
+
+    public OrderSummary(Long id, LocalDateTime orderDate, String status, BigDecimal totalPrice,
+                        String paymentMethod, String shippingAddress) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalPrice = totalPrice;
+        this.paymentMethod = paymentMethod;
+        this.shippingAddress = shippingAddress;
+    }
+}
@@ -0,0 +1,226 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs bcrypt on a dedicated bounded pool so hashing bursts cannot exhaust the HTTP threads.
+ * When the queue is full, submissions fail fast with {@link HashingOverloadedException}.
+ * New hashes use the configured target cost; hashes stored at another cost are flagged for rehash.
+ */
+@ApplicationScoped
+public class PasswordHasher {
+
+    public static final int MIN_COST = 4;
+    public static final int MAX_COST = 31;
+    public static final int DEFAULT_COST = 12;
+
+    public static class Stats {
+        public int threads;
+        public int activeThreads;
+        public int queueDepth;
+        public int queueCapacity;
+        public long completed;
+        public long rejected;
+        public long rehashesSkipped;
+        public double avgWaitMs;
+        public double maxWaitMs;
+        public double avgHashMs;
+        public double maxHashMs;
+        public int targetCost;
+    }
+
+    public static class CostTiming {
+        public int cost;
+        public double millis;
+    }
+
+    private final int threads = AppConfig.getInt("auth.hash.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private final int queueCapacity = AppConfig.getInt("auth.hash.queue", 64);
+    private final int retryAfterSeconds = AppConfig.getInt("auth.hash.retry-after-seconds", 2);
+    private final int targetCost = clampCost(AppConfig.getInt("auth.bcrypt.cost", DEFAULT_COST));
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rehashesSkipped = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<String> hash(String plainPassword) {
+        return submit(() -> BCrypt.hashpw(plainPassword, BCrypt.gensalt(targetCost)));
+    }
+
+    public CompletableFuture<Boolean> verify(String plainPassword, String passwordHash) {
+        return submit(() -> {
+            try {
+                return BCrypt.checkpw(plainPassword, passwordHash);
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Blocking variant for callers that cannot suspend (filters, EJB methods); still goes through admission control.
+     */
+    public String hashNow(String plainPassword) {
+        return await(hash(plainPassword));
+    }
+
+    public boolean verifyNow(String plainPassword, String passwordHash) {
+        return await(verify(plainPassword, passwordHash));
+    }
+
+    /**
+     * True when a stored hash was produced at a cost other than the target (or is not bcrypt at all).
+     */
+    public boolean needsRehash(String passwordHash) {
+        return costOf(passwordHash) != targetCost;
+    }
+
+    /**
+     * Counts a cost upgrade dropped because the pool was saturated; it is retried on the next login.
+     */
+    public void recordRehashSkipped() {
+        rehashesSkipped.incrementAndGet();
+    }
+
+    public int getTargetCost() {
+        return targetCost;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.threads = threads;
+        s.activeThreads = executor.getActiveCount();
+        s.queueDepth = executor.getQueue().size();
+        s.queueCapacity = queueCapacity;
+        s.completed = completed.get();
+        s.rejected = rejected.get();
+        s.rehashesSkipped = rehashesSkipped.get();
+        long done = Math.max(1, s.completed);
+        s.avgWaitMs = totalWaitNanos.get() / 1e6 / done;
+        s.maxWaitMs = maxWaitNanos.get() / 1e6;
+        s.avgHashMs = totalHashNanos.get() / 1e6 / done;
+        s.maxHashMs = maxHashNanos.get() / 1e6;
+        s.targetCost = targetCost;
+        return s;
+    }
+
+    /**
+     * Reads the cost factor from a "$2a$NN$..." hash; returns -1 when the value is not a bcrypt hash.
+     */
+    public static int costOf(String passwordHash) {
+        if (passwordHash == null || passwordHash.length() < 7 || passwordHash.charAt(0) != '$') return -1;
+        int sep = passwordHash.indexOf('$', 1);
+        if (sep < 0 || sep + 3 > passwordHash.length() || passwordHash.charAt(sep + 3) != '$') return -1;
+        try {
+            return Integer.parseInt(passwordHash.substring(sep + 1, sep + 3));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Measures the median time of one hash at each cost factor, on the calling thread.
+     */
+    public static List<CostTiming> benchmark(int fromCost, int toCost, int rounds) {
+        List<CostTiming> timings = new ArrayList<>();
+        BCrypt.hashpw("warm-up", BCrypt.gensalt(MIN_COST));
+        for (int cost = clampCost(fromCost); cost <= clampCost(toCost); cost++) {
+            long[] samples = new long[Math.max(1, rounds)];
+            for (int i = 0; i < samples.length; i++) {
+                long start = System.nanoTime();
+                BCrypt.hashpw("benchmark-password", BCrypt.gensalt(cost));
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            CostTiming t = new CostTiming();
+            t.cost = cost;
+            t.millis = samples[samples.length / 2] / 1e6;
+            timings.add(t);
+        }
+        return timings;
+    }
+
+    private static int clampCost(int cost) {
+        return Math.max(MIN_COST, Math.min(MAX_COST, cost));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                record(totalWaitNanos, maxWaitNanos, startedAt - queuedAt);
+                try {
+                    future.complete(work.get());
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    record(totalHashNanos, maxHashNanos, System.nanoTime() - startedAt);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            throw new HashingOverloadedException(retryAfterSeconds);
+        }
+        return future;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw ex;
+        }
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,27 @@
+package com.parfumerie.service;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a batch catalog update: the perfume id and whichever of price, stock and availability change.
+ */
+public class PerfumeDelta {
+
+    public Long id;
+    public BigDecimal price;
+    public Integer stock;
+    public Boolean available;
+
+    public PerfumeDelta() {}
+
+    /**
+     * The first problem with this delta, or null when it can be applied.
+     */
+    public String violation() {
+        if (id == null) return "id is required";
+        if (price == null && stock == null && available == null) return "price, stock or available is required";
+        if (stock != null && stock < 0) return "stock must be >= 0";
+        if (price != null && price.signum() < 0) return "price must be >= 0";
+        return null;
+    }
+}
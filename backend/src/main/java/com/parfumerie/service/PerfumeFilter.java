@@ -0,0 +1,49 @@
+package com.parfumerie.service;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog filter criteria, turned into bound criteria predicates (never concatenated SQL).
+ * Column order of the perfumes indexes follows the equality filters first, then price.
+ */
+public class PerfumeFilter {
+
+    public String brand;
+    public String gender;
+    public String type;
+    public BigDecimal minPrice;
+    public BigDecimal maxPrice;
+    public Boolean available;
+
+    public boolean isEmpty() {
+        return brand == null && gender == null && type == null
+                && minPrice == null && maxPrice == null && available == null;
+    }
+
+    public void validate() {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must be <= maxPrice");
+        }
+    }
+
+    public List<Predicate> toPredicates(CriteriaBuilder cb, Root<?> p) {
+        List<Predicate> where = new ArrayList<>();
+        if (brand != null) where.add(cb.equal(p.get("brand"), brand));
+        if (gender != null) where.add(cb.equal(p.get("gender"), gender));
+        if (type != null) where.add(cb.equal(p.get("type"), type));
+        if (minPrice != null) where.add(cb.greaterThanOrEqualTo(p.get("price"), minPrice));
+        if (maxPrice != null) where.add(cb.lessThanOrEqualTo(p.get("price"), maxPrice));
+        if (available != null) where.add(cb.equal(p.get("available"), available));
+        return where;
+    }
+
+    public boolean constrainsPrice() {
+        return minPrice != null || maxPrice != null;
+    }
+}
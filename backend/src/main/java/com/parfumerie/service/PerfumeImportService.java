@@ -0,0 +1,131 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.PerfumeEventPublisher;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Upserts one chunk of imported catalog rows per transaction. Rows carrying an id update that
+ * perfume; others match on (brand, name, format) or are inserted. Existing rows are loaded with
+ * two IN queries per chunk and inserts are flushed together so the JDBC driver can batch them.
+ */
+@Stateless
+public class PerfumeImportService {
+
+    public static class RowError {
+        public final int line;
+        public final String message;
+
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+    public static class ChunkResult {
+        public int created;
+        public int updated;
+        public final List<RowError> errors = new ArrayList<>();
+    }
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public ChunkResult importChunk(List<CatalogImportReader.Row> rows) {
+        ChunkResult result = new ChunkResult();
+
+        Set<Long> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (CatalogImportReader.Row row : rows) {
+            if (row.error != null) continue;
+            if (row.id != null) ids.add(row.id);
+            else if (row.perfume.getName() != null) names.add(row.perfume.getName());
+        }
+
+        Map<Long, Perfume> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Perfume p : em.createQuery("SELECT p FROM Perfume p WHERE p.id IN :ids", Perfume.class)
+                    .setParameter("ids", ids).getResultList()) {
+                byId.put(p.getId(), p);
+            }
+        }
+        Map<String, Perfume> byKey = new HashMap<>();
+        if (!names.isEmpty()) {
+            for (Perfume p : em.createQuery("SELECT p FROM Perfume p WHERE p.name IN :names ORDER BY p.id", Perfume.class)
+                    .setParameter("names", names).getResultList()) {
+                byKey.putIfAbsent(naturalKey(p), p);
+            }
+        }
+
+        Set<Perfume> created = new LinkedHashSet<>();
+        Set<Perfume> updated = new LinkedHashSet<>();
+        for (CatalogImportReader.Row row : rows) {
+            if (row.error != null) {
+                result.errors.add(new RowError(row.line, row.error));
+                continue;
+            }
+
+            Perfume existing = row.id != null ? byId.get(row.id) : byKey.get(naturalKey(row.perfume));
+            if (existing == null && row.id != null) {
+                result.errors.add(new RowError(row.line, "Perfume " + row.id + " not found"));
+                continue;
+            }
+
+            if (existing == null) {
+                String violation = PerfumeRules.violation(row.perfume);
+                if (violation != null) {
+                    result.errors.add(new RowError(row.line, violation));
+                    continue;
+                }
+                em.persist(row.perfume);
+                byKey.put(naturalKey(row.perfume), row.perfume);
+                created.add(row.perfume);
+                result.created++;
+            } else {
+                Perfume merged = copyOf(existing);
+                PerfumeRules.merge(merged, row.perfume);
+                String violation = PerfumeRules.violation(merged);
+                if (violation != null) {
+                    result.errors.add(new RowError(row.line, violation));
+                    continue;
+                }
+                PerfumeRules.merge(existing, merged);
+                if (!created.contains(existing)) updated.add(existing);
+                result.updated++;
+            }
+        }
+
+        em.flush();
+        perfumeEventPublisher.publishCreated(created);
+        perfumeEventPublisher.publishUpdated(updated);
+        return result;
+    }
+
+    private static String naturalKey(Perfume p) {
+        return Objects.toString(p.getBrand(), "") + "\u0000" + p.getName() + "\u0000" + Objects.toString(p.getFormat(), "");
+    }
+
+    private static Perfume copyOf(Perfume p) {
+        Perfume copy = new Perfume();
+        PerfumeRules.merge(copy, p);
+        return copy;
+    }
+}
@@ -0,0 +1,24 @@
+package com.parfumerie.service;
+
+import java.util.List;
+
+/**
+ * One keyset page of the catalog; pass nextCursor back as "after" to continue (null on the last page).
+ * Items are perfumes, or field maps when a sparse fieldset was requested.
+ */
+public class PerfumePage {
+
+    public List<?> items;
+    public String nextCursor;
+    public String sort;
+    public int limit;
+
+    public PerfumePage() {}
+
+    public PerfumePage(List<?> items, String nextCursor, String sort, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.sort = sort;
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,145 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Perfume;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight loading of perfume details: concurrent reads of the same id at the same catalog
+ * version share one em.find and one serialization, and every caller writes the same JSON bytes.
+ */
+@ApplicationScoped
+public class PerfumeReadCoalescer {
+
+    public static class Stats {
+        public long loads;
+        public long coalescedCallers;
+        public double avgCallersPerLoad;
+        public int maxCallersPerLoad;
+        public long waitTimeouts;
+        public int inFlight;
+    }
+
+    private static final class Key {
+        final Long id;
+        final long version;
+
+        Key(Long id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return version == other.version && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, version);
+        }
+    }
+
+    private static final class Flight {
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final AtomicInteger callers = new AtomicInteger(1);
+    }
+
+    private final long waitMs = AppConfig.getLong("catalog.coalesce.wait-ms", 5_000);
+
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+    private final AtomicInteger maxCallers = new AtomicInteger();
+
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Inject
+    private SharedEntityCache sharedEntityCache;
+
+    /**
+     * JSON of the perfume as of {@code catalogVersion}, or null when it does not exist.
+     * The first caller loads; callers arriving while it runs wait for its result.
+     */
+    public byte[] load(Long id, long catalogVersion) {
+        Key key = new Key(id, catalogVersion);
+        Flight flight = new Flight();
+        Flight leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            leader.callers.incrementAndGet();
+            coalesced.incrementAndGet();
+            try {
+                return leader.result.get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                waitTimeouts.incrementAndGet();
+                return read(id);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return read(id);
+            } catch (ExecutionException ex) {
+                return read(id);
+            }
+        }
+
+        try {
+            byte[] json = read(id);
+            flight.result.complete(json);
+            return json;
+        } catch (RuntimeException ex) {
+            flight.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+            loads.incrementAndGet();
+            maxCallers.accumulateAndGet(flight.callers.get(), Math::max);
+        }
+    }
+
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.loads = loads.get();
+        s.coalescedCallers = coalesced.get();
+        s.avgCallersPerLoad = s.loads == 0 ? 0 : (double) (s.loads + s.coalescedCallers) / s.loads;
+        s.maxCallersPerLoad = maxCallers.get();
+        s.waitTimeouts = waitTimeouts.get();
+        s.inFlight = inFlight.size();
+        return s;
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            jsonb.close();
+        } catch (Exception ignored) {
+
+        }
+    }
+
+    private byte[] read(Long id) {
+        sharedEntityCache.recordLookup(Perfume.class, id);
+        Perfume p = em.find(Perfume.class, id);
+        return p == null ? null : jsonb.toJson(p).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+
+/**
+ * Validation and merge rules for catalog entries, shared by the REST endpoints and the bulk import.
+ */
+public final class PerfumeRules {
+
+    private PerfumeRules() {}
+
+    /**
+     * The first rule the perfume breaks, or null when valid; defaults availability to true.
+     */
+    public static String violation(Perfume p) {
+        if (p == null) {
+            return "Body is required";
+        }
+        if (p.getName() == null || p.getName().isBlank()) {
+            return "name is required";
+        }
+
+        Integer stock = p.getStock();
+        if (stock != null && stock < 0) {
+            return "stock must be >= 0";
+        }
+
+        if (p.getAvailable() == null) {
+            p.setAvailable(true);
+        }
+        return null;
+    }
+
+    /**
+     * Copies the non-null fields of {@code data} onto {@code target}.
+     */
+    public static void merge(Perfume target, Perfume data) {
+        if (data.getName() != null) target.setName(data.getName());
+        if (data.getBrand() != null) target.setBrand(data.getBrand());
+        if (data.getPrice() != null) target.setPrice(data.getPrice());
+        if (data.getStock() != null) target.setStock(data.getStock());
+        if (data.getFormat() != null) target.setFormat(data.getFormat());
+        if (data.getDescription() != null) target.setDescription(data.getDescription());
+        if (data.getGender() != null) target.setGender(data.getGender());
+        if (data.getType() != null) target.setType(data.getType());
+        if (data.getComment() != null) target.setComment(data.getComment());
+        if (data.getAvailable() != null) target.setAvailable(data.getAvailable());
+        if (data.getHotStock() != null) target.setHotStock(data.getHotStock());
+    }
+}
@@ -0,0 +1,201 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over perfume name, brand, description and comment, ranked with BM25.
+ * Built lazily on the first search, then kept current from committed {@link PerfumeChangedEvent}s
+ * one document at a time.
+ */
+@ApplicationScoped
+public class PerfumeSearchIndex {
+
+    public static class Hit {
+        public final Long perfumeId;
+        public final double score;
+
+        Hit(Long perfumeId, double score) {
+            this.perfumeId = perfumeId;
+            this.score = score;
+        }
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+    private volatile boolean loaded;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    public List<Hit> search(String query, int limit) {
+        ensureLoaded();
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(query)));
+        if (terms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            if (n == 0) return List.of();
+            double avgLength = (double) totalLength / n;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Integer> docs = postings.get(term);
+                if (docs == null) continue;
+                double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+                for (Map.Entry<Long, Integer> posting : docs.entrySet()) {
+                    double tf = posting.getValue();
+                    double norm = K1 * (1 - B + B * lengths.get(posting.getKey()) / avgLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new Hit(id, score)));
+            hits.sort((a, b) -> a.score != b.score
+                    ? Double.compare(b.score, a.score)
+                    : Long.compare(a.perfumeId, b.perfumeId));
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onPerfumeChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        if (event == null || event.isStockOnly()) return;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            for (Perfume p : event.getPerfumes()) {
+                if (p == null || p.getId() == null) continue;
+                if (event.isDeletion()) {
+                    remove(p.getId());
+                } else {
+                    index(p.getId(), p.getName(), p.getBrand(), p.getDescription(), p.getComment());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A perfume changed on another node: re-read its text, or drop it if it is gone.
+     * A bulk change drops the whole index, which reloads on the next search.
+     */
+    public void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event == null || !event.isRemote() || !event.concerns(Perfume.class)) return;
+        if (!loaded) return;
+        if (event.isTypeWide()) {
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                lengths.clear();
+                totalLength = 0;
+                loaded = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        List<Object[]> rows = em.createQuery(
+                "SELECT p.id, p.name, p.brand, p.description, p.comment FROM Perfume p WHERE p.id = :id", Object[].class)
+                .setParameter("id", event.getEntityId())
+                .getResultList();
+        lock.writeLock().lock();
+        try {
+            if (rows.isEmpty()) {
+                remove(event.getEntityId());
+            } else {
+                Object[] r = rows.get(0);
+                index((Long) r[0], (String) r[1], (String) r[2], (String) r[3], (String) r[4]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+            List<Object[]> rows = em.createQuery(
+                    "SELECT p.id, p.name, p.brand, p.description, p.comment FROM Perfume p", Object[].class)
+                    .getResultList();
+            for (Object[] r : rows) {
+                index((Long) r[0], (String) r[1], (String) r[2], (String) r[3], (String) r[4]);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long id, String name, String brand, String description, String comment) {
+        remove(id);
+
+        Map<String, Integer> terms = new HashMap<>();
+        int length = 0;
+        length += addTerms(terms, name, NAME_WEIGHT);
+        length += addTerms(terms, brand, BRAND_WEIGHT);
+        length += addTerms(terms, description, 1);
+        length += addTerms(terms, comment, 1);
+
+        documents.put(id, terms);
+        lengths.put(id, length);
+        totalLength += length;
+        terms.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+    }
+
+    private void remove(Long id) {
+        Map<String, Integer> terms = documents.remove(id);
+        if (terms == null) return;
+        totalLength -= lengths.remove(id);
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs == null) continue;
+            docs.remove(id);
+            if (docs.isEmpty()) postings.remove(term);
+        }
+    }
+
+    private static int addTerms(Map<String, Integer> terms, String text, int weight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        for (String token : tokens) {
+            terms.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+}
@@ -1,14 +1,29 @@
 package com.parfumerie.service;
 
 import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.PerfumeEventPublisher;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
- * CRUD service for perfume catalog entries.
+ * CRUD service for perfume catalog entries, plus filtered and keyset-paginated listing.
  */
 @Stateless
 public class PerfumeService {
@@ -16,8 +31,15 @@ public class PerfumeService {
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
+    @Inject
+    private PerfumeEventPublisher perfumeEventPublisher;
+
+    @Inject
+    private SharedEntityCache sharedEntityCache;
+
     public Perfume create(Perfume perfume) {
         em.persist(perfume);
+        perfumeEventPublisher.publishCreated(perfume);
         return perfume;
     }
 
@@ -30,6 +52,218 @@ public class PerfumeService {
                  .getResultList();
     }
 
+    public List<Perfume> findAll(PerfumeFilter filter) {
+        if (filter == null || filter.isEmpty()) return findAll();
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Perfume> cq = cb.createQuery(Perfume.class);
+        Root<Perfume> p = cq.from(Perfume.class);
+        cq.select(p).where(filter.toPredicates(cb, p).toArray(new Predicate[0])).orderBy(cb.asc(p.get("id")));
+        return em.createQuery(cq).getResultList();
+    }
+
+    /**
+     * Next batch of matches in id order after {@code afterId}, for streamed listings.
+     */
+    public List<Perfume> findChunk(PerfumeFilter filter, long afterId, int size) {
+        return chunk(Perfume.class, null, filter, afterId, size);
+    }
+
+    /**
+     * Same as {@link #findChunk} but reading only the selected columns.
+     */
+    public List<Tuple> findChunk(PerfumeFilter filter, long afterId, int size, FieldSet fields) {
+        return chunk(Tuple.class, fields, filter, afterId, size);
+    }
+
+    public PerfumePage findPage(PerfumeSort sort, String after, int limit, PerfumeFilter filter) {
+        return findPage(sort, after, limit, filter, null);
+    }
+
+    /**
+     * Seek pagination on (sort key, id): each page is one index range scan whatever the catalog size.
+     * For price, rows without a price come after all priced rows, ordered by id.
+     * With a fieldset, items are maps of the requested fields plus id and the sort key.
+     */
+    public PerfumePage findPage(PerfumeSort sort, String after, int limit, PerfumeFilter filter, FieldSet fields) {
+        PerfumeSort.Cursor cursor = sort.decode(after);
+        int fetch = limit + 1;
+        FieldSet selected = fields == null ? null : fields.with(sort.attribute());
+        Class<?> type = selected == null ? Perfume.class : Tuple.class;
+
+        List<Object> rows = new ArrayList<>();
+        if (cursor == null || !cursor.inNullBlock()) {
+            rows.addAll(seek(type, selected, sort, cursor, fetch, filter));
+        }
+        if (sort == PerfumeSort.PRICE && rows.size() < fetch && !filter.constrainsPrice()) {
+            Long afterId = cursor != null && cursor.inNullBlock() ? cursor.id : null;
+            rows.addAll(seekUnpriced(type, selected, afterId, fetch - rows.size(), filter));
+        }
+
+        String next = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            Object last = rows.get(rows.size() - 1);
+            next = last instanceof Perfume
+                    ? sort.encode((Perfume) last)
+                    : sort.encode(((Tuple) last).get("id", Long.class), ((Tuple) last).get(sort.attribute()));
+        }
+        if (selected != null) {
+            List<Object> maps = new ArrayList<>(rows.size());
+            for (Object row : rows) maps.add(selected.toMap((Tuple) row));
+            rows = maps;
+        }
+        return new PerfumePage(rows, next, sort.attribute(), limit);
+    }
+
+    private <T> List<T> chunk(Class<T> type, FieldSet fields, PerfumeFilter filter, long afterId, int size) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(type);
+        Root<Perfume> p = cq.from(Perfume.class);
+        List<Predicate> where = filter == null ? new ArrayList<>() : filter.toPredicates(cb, p);
+        where.add(cb.greaterThan(p.get("id"), afterId));
+        select(cq, p, fields).where(where.toArray(new Predicate[0])).orderBy(cb.asc(p.get("id")));
+        return em.createQuery(cq).setMaxResults(size).getResultList();
+    }
+
+    private <T> List<T> seek(Class<T> type, FieldSet fields, PerfumeSort sort, PerfumeSort.Cursor cursor,
+                             int fetch, PerfumeFilter filter) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(type);
+        Root<Perfume> p = cq.from(Perfume.class);
+        Path<Long> id = p.get("id");
+
+        List<Predicate> where = filter.toPredicates(cb, p);
+        if (sort == PerfumeSort.ID) {
+            if (cursor != null) where.add(cb.greaterThan(id, cursor.id));
+            cq.orderBy(cb.asc(id));
+        } else {
+            Path<Comparable<Object>> key = p.get(sort.attribute());
+            if (sort == PerfumeSort.PRICE) where.add(cb.isNotNull(key));
+            if (cursor != null) {
+                @SuppressWarnings("unchecked")
+                Comparable<Object> value = (Comparable<Object>) cursor.value;
+                where.add(cb.or(
+                        cb.greaterThan(key, value),
+                        cb.and(cb.equal(key, value), cb.greaterThan(id, cursor.id))));
+            }
+            cq.orderBy(cb.asc(key), cb.asc(id));
+        }
+
+        select(cq, p, fields).where(where.toArray(new Predicate[0]));
+        return em.createQuery(cq).setMaxResults(fetch).getResultList();
+    }
+
+    private <T> List<T> seekUnpriced(Class<T> type, FieldSet fields, Long afterId, int fetch, PerfumeFilter filter) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(type);
+        Root<Perfume> p = cq.from(Perfume.class);
+        Path<Long> id = p.get("id");
+
+        List<Predicate> where = filter.toPredicates(cb, p);
+        where.add(cb.isNull(p.get("price")));
+        if (afterId != null) where.add(cb.greaterThan(id, afterId));
+
+        select(cq, p, fields).where(where.toArray(new Predicate[0])).orderBy(cb.asc(id));
+        return em.createQuery(cq).setMaxResults(fetch).getResultList();
+    }
+
+    /**
+     * Selects the entity itself, or a tuple of the fieldset's columns.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CriteriaQuery<T> select(CriteriaQuery<T> cq, Root<Perfume> p, FieldSet fields) {
+        if (fields == null) {
+            ((CriteriaQuery<Perfume>) cq).select(p);
+        } else {
+            cq.multiselect(fields.selections(p));
+        }
+        return cq;
+    }
+
+    /**
+     * Applies a chunk of deltas with one set-based UPDATE (a CASE per column, keyed on id) in its own
+     * transaction, and returns the ids that exist and were written. Change events are left to the
+     * caller so that a whole batch is announced once.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public List<Long> applyDeltas(List<PerfumeDelta> deltas) {
+        List<Long> requested = new ArrayList<>(deltas.size());
+        for (PerfumeDelta d : deltas) requested.add(d.id);
+        Set<Long> found = new HashSet<>(em.createQuery("SELECT p.id FROM Perfume p WHERE p.id IN :ids", Long.class)
+                .setParameter("ids", requested)
+                .getResultList());
+        if (found.isEmpty()) return List.of();
+
+        List<PerfumeDelta> applied = new ArrayList<>(found.size());
+        for (PerfumeDelta d : deltas) {
+            if (found.contains(d.id)) applied.add(d);
+        }
+
+        List<String> assignments = new ArrayList<>(3);
+        caseAssignment(assignments, applied, "price", "p", d -> d.price);
+        caseAssignment(assignments, applied, "stock", "s", d -> d.stock);
+        caseAssignment(assignments, applied, "available", "a", d -> d.available);
+
+        Query update = em.createQuery("UPDATE Perfume p SET " + String.join(", ", assignments) + " WHERE p.id IN :ids");
+        for (int i = 0; i < applied.size(); i++) {
+            PerfumeDelta d = applied.get(i);
+            update.setParameter("i" + i, d.id);
+            if (d.price != null) update.setParameter("p" + i, d.price);
+            if (d.stock != null) update.setParameter("s" + i, d.stock);
+            if (d.available != null) update.setParameter("a" + i, d.available);
+        }
+        update.setParameter("ids", found).executeUpdate();
+
+        List<Long> written = new ArrayList<>(applied.size());
+        for (PerfumeDelta d : applied) written.add(d.id);
+        return written;
+    }
+
+    private static void caseAssignment(List<String> assignments, List<PerfumeDelta> deltas, String attribute,
+                                       String prefix, Function<PerfumeDelta, Object> value) {
+        StringBuilder expr = new StringBuilder();
+        for (int i = 0; i < deltas.size(); i++) {
+            if (value.apply(deltas.get(i)) != null) {
+                expr.append(" WHEN :i").append(i).append(" THEN :").append(prefix).append(i);
+            }
+        }
+        if (expr.length() == 0) return;
+        assignments.add("p." + attribute + " = CASE p.id" + expr + " ELSE p." + attribute + " END");
+    }
+
+    /**
+     * Takes {@code quantity} off the stock in one conditional UPDATE; false when not enough is left.
+     * Journal rows the hot-stock ledger has not flushed yet count as taken, so a perfume whose
+     * hotStock flag was just turned off cannot be sold past what the ledger already sold.
+     * Untracked stock (null) always succeeds and stays null. Managed instances are not refreshed;
+     * only this row leaves the shared cache, not every cached perfume.
+     * Native SQL: EclipseLink turns a JPQL UPDATE with a subquery into WHERE EXISTS over a second
+     * scan of perfumes, whose stock is not re-checked once the row lock is granted.
+     */
+    public boolean decrementStock(Long id, int quantity) {
+        boolean taken = em.createNativeQuery("UPDATE perfumes SET stock = stock - ?1 "
+                        + "WHERE id = ?2 AND (stock IS NULL OR stock - COALESCE((SELECT SUM(j.quantity) "
+                        + "FROM stock_journal j WHERE j.perfume_id = perfumes.id), 0) >= ?1)")
+                .setHint(SharedEntityCache.INVALIDATE_HINT, false)
+                .setParameter(1, quantity)
+                .setParameter(2, id)
+                .executeUpdate() == 1;
+        if (taken) sharedEntityCache.evictAfterWrite(Perfume.class, id);
+        return taken;
+    }
+
+    /**
+     * Stock that can still be sold: the column less unflushed hot-stock journal rows; null when untracked.
+     */
+    public Integer findStock(Long id) {
+        List<?> stock = em.createQuery("SELECT p.stock - COALESCE((SELECT SUM(j.quantity) "
+                        + "FROM StockJournalEntry j WHERE j.perfumeId = p.id), 0) FROM Perfume p WHERE p.id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        Number available = stock.isEmpty() ? null : (Number) stock.get(0);
+        return available == null ? null : available.intValue();
+    }
+
     public Perfume update(Long id, Perfume data) {
         Perfume existing = em.find(Perfume.class, id);
         if (existing == null) return null;
@@ -44,7 +278,9 @@ public class PerfumeService {
         existing.setAvailable(data.getAvailable());
         existing.setPrice(data.getPrice());
         existing.setComment(data.getComment());
+        existing.setHotStock(data.getHotStock());
 
+        perfumeEventPublisher.publishUpdated(existing);
         return existing; 
     }
 
@@ -52,6 +288,7 @@ public class PerfumeService {
         Perfume existing = em.find(Perfume.class, id);
         if (existing == null) return false;
         em.remove(existing);
+        perfumeEventPublisher.publishDeleted(existing);
         return true;
     }
 }
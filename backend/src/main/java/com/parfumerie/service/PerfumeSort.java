@@ -0,0 +1,106 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Sort keys supported by catalog keyset pagination, each backed by a (key, id) index.
+ */
+public enum PerfumeSort {
+    ID("id"),
+    NAME("name"),
+    PRICE("price");
+
+    private static final String NULL_MARKER = "~";
+
+    private final String attribute;
+
+    PerfumeSort(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public static PerfumeSort parse(String value) {
+        if (value == null || value.isBlank()) return ID;
+        for (PerfumeSort s : values()) {
+            if (s.attribute.equalsIgnoreCase(value.trim())) return s;
+        }
+        throw new IllegalArgumentException("sort must be one of price, name, id");
+    }
+
+    /**
+     * Position after which the next page starts. A null key value (only possible for price)
+     * means the cursor is in the trailing block of rows without a price.
+     */
+    public static class Cursor {
+        public final Object value;
+        public final long id;
+
+        Cursor(Object value, long id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        public boolean inNullBlock() {
+            return value == null;
+        }
+    }
+
+    public String encode(Perfume last) {
+        return encode(last.getId(), keyOf(last));
+    }
+
+    /**
+     * Cursor from the id and sort key value of the last row, for projected pages.
+     */
+    public String encode(Long id, Object key) {
+        String raw = attribute + "|" + id + "|" + (key == null ? NULL_MARKER : key.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 3);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(attribute)) {
+            throw new IllegalArgumentException("cursor does not match sort=" + attribute);
+        }
+
+        try {
+            long id = Long.parseLong(parts[1]);
+            String value = parts[2];
+            switch (this) {
+                case ID:
+                    return new Cursor(id, id);
+                case NAME:
+                    return new Cursor(value, id);
+                default:
+                    return new Cursor(NULL_MARKER.equals(value) ? null : new BigDecimal(value), id);
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    private Object keyOf(Perfume p) {
+        switch (this) {
+            case NAME:
+                return p.getName();
+            case PRICE:
+                return p.getPrice();
+            default:
+                return p.getId();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.FilteredOrderCreatedEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prefix suggestions over perfume names and brands, weighted by units sold.
+ * The structure is immutable: a sorted key array searched by binary search, plus precomputed
+ * top-k lists for short prefixes. It is rebuilt in the background and swapped in atomically,
+ * so readers only do a volatile read.
+ */
+@ApplicationScoped
+public class PerfumeSuggester {
+
+    public static class Suggestion {
+        public final String text;
+        public final String kind;
+        public final Long perfumeId;
+        public final long weight;
+
+        Suggestion(String text, String kind, Long perfumeId, long weight) {
+            this.text = text;
+            this.kind = kind;
+            this.perfumeId = perfumeId;
+            this.weight = weight;
+        }
+    }
+
+    private static final int TOP_K = 10;
+    private static final int PRECOMPUTED_PREFIX = 3;
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator
+            .comparingLong((Suggestion s) -> -s.weight)
+            .thenComparing(s -> s.text);
+
+    private static final class Snapshot {
+        final String[] keys;
+        final Suggestion[] targets;
+        final Map<String, Suggestion[]> shortPrefixes;
+
+        Snapshot(String[] keys, Suggestion[] targets, Map<String, Suggestion[]> shortPrefixes) {
+            this.keys = keys;
+            this.targets = targets;
+            this.shortPrefixes = shortPrefixes;
+        }
+    }
+
+    private final long catalogDelayMs = AppConfig.getLong("suggest.rebuild-delay-ms", 2_000);
+    private final long orderDelayMs = AppConfig.getLong("suggest.popularity-delay-ms", 60_000);
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @PersistenceContext(unitName = "parfumeriePU")
+    private EntityManager em;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            scheduleRebuild(0);
+            return List.of();
+        }
+        String folded = TextNormalizer.fold(prefix);
+        if (folded.isEmpty()) return List.of();
+
+        Suggestion[] top = snapshot.shortPrefixes.get(folded);
+        if (top != null) {
+            return Arrays.asList(top).subList(0, Math.min(limit, top.length));
+        }
+        return collect(snapshot, folded, limit);
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+        scheduleRebuild(0);
+    }
+
+    public void onCatalogChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        if (event == null || event.isStockOnly()) return;
+        scheduleRebuild(catalogDelayMs);
+    }
+
+    public void onRemoteChange(@Observes CacheInvalidationEvent event) {
+        if (event != null && event.isRemote() && event.concerns(Perfume.class)) {
+            scheduleRebuild(catalogDelayMs);
+        }
+    }
+
+    public void onOrderCreated(@Observes FilteredOrderCreatedEvent event) {
+        scheduleRebuild(orderDelayMs);
+    }
+
+    /**
+     * Coalesces change bursts into one rebuild; the running rebuild picks up everything committed before it starts.
+     */
+    private void scheduleRebuild(long delayMs) {
+        if (!rebuildPending.compareAndSet(false, true)) return;
+        try {
+            scheduler.schedule(() -> {
+                rebuildPending.set(false);
+                try {
+                    current.set(build());
+                } catch (Exception ex) {
+                    System.err.println("Suggestion rebuild failed: " + ex.getMessage());
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            rebuildPending.set(false);
+            System.err.println("Suggestion rebuild not scheduled: " + ex.getMessage());
+        }
+    }
+
+    private Snapshot build() {
+        Map<Long, Long> sold = new HashMap<>();
+        for (Object[] r : em.createQuery(
+                "SELECT oi.perfume.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.perfume.id", Object[].class)
+                .getResultList()) {
+            sold.put((Long) r[0], r[1] == null ? 0L : ((Number) r[1]).longValue());
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        Map<String, Long> brandWeights = new LinkedHashMap<>();
+        Map<String, String> brandLabels = new HashMap<>();
+        for (Object[] r : em.createQuery("SELECT p.id, p.name, p.brand FROM Perfume p", Object[].class)
+                .getResultList()) {
+            Long id = (Long) r[0];
+            long weight = sold.getOrDefault(id, 0L);
+            if (r[1] != null) {
+                suggestions.add(new Suggestion((String) r[1], "name", id, weight));
+            }
+            String brand = (String) r[2];
+            if (brand != null && !brand.isBlank()) {
+                String key = TextNormalizer.fold(brand);
+                brandWeights.merge(key, weight, Long::sum);
+                brandLabels.putIfAbsent(key, brand);
+            }
+        }
+        brandWeights.forEach((key, weight) ->
+                suggestions.add(new Suggestion(brandLabels.get(key), "brand", null, weight)));
+
+        TreeMap<String, List<Suggestion>> keyed = new TreeMap<>();
+        for (Suggestion s : suggestions) {
+            String folded = TextNormalizer.fold(s.text);
+            int start = 0;
+            while (start < folded.length()) {
+                keyed.computeIfAbsent(folded.substring(start), k -> new ArrayList<>()).add(s);
+                int space = folded.indexOf(' ', start);
+                if (space < 0) break;
+                start = space + 1;
+            }
+        }
+
+        int size = keyed.values().stream().mapToInt(List::size).sum();
+        String[] keys = new String[size];
+        Suggestion[] targets = new Suggestion[size];
+        int i = 0;
+        for (Map.Entry<String, List<Suggestion>> e : keyed.entrySet()) {
+            for (Suggestion s : e.getValue()) {
+                keys[i] = e.getKey();
+                targets[i] = s;
+                i++;
+            }
+        }
+
+        Snapshot partial = new Snapshot(keys, targets, Map.of());
+        Map<String, Suggestion[]> shortPrefixes = new HashMap<>();
+        for (String key : keys) {
+            for (int len = 1; len <= Math.min(PRECOMPUTED_PREFIX, key.length()); len++) {
+                String prefix = key.substring(0, len);
+                if (!shortPrefixes.containsKey(prefix)) {
+                    shortPrefixes.put(prefix, collect(partial, prefix, TOP_K).toArray(new Suggestion[0]));
+                }
+            }
+        }
+        return new Snapshot(keys, targets, shortPrefixes);
+    }
+
+    private static List<Suggestion> collect(Snapshot snapshot, String prefix, int limit) {
+        int lo = lowerBound(snapshot.keys, prefix);
+        int hi = lowerBound(snapshot.keys, prefix + Character.MAX_VALUE);
+
+        Map<Suggestion, Boolean> unique = new LinkedHashMap<>();
+        for (int i = lo; i < hi; i++) {
+            unique.put(snapshot.targets[i], Boolean.TRUE);
+        }
+        List<Suggestion> matches = new ArrayList<>(unique.keySet());
+        matches.sort(BY_WEIGHT);
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private static int lowerBound(String[] keys, String value) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(value) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
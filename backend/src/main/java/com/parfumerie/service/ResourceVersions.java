@@ -0,0 +1,114 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Order;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationBus;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.annotation.Priority;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.core.EntityTag;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters behind the strong ETags of catalog and order reads.
+ * Counters move only after commit, so a tag is never handed out with data older than it.
+ * Tags embed this node's id, so a tag from another node or a previous run never matches.
+ */
+@ApplicationScoped
+public class ResourceVersions {
+
+    private static final String NODE = CacheInvalidationBus.NODE_ID.substring(0, 8);
+
+    private final AtomicLong catalog = new AtomicLong();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong users = new AtomicLong();
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    private CacheInvalidationBus invalidationBus;
+
+    public long catalogVersion() {
+        return catalog.get();
+    }
+
+    public long ordersVersion() {
+        return orders.get();
+    }
+
+    public EntityTag catalogTag() {
+        return catalogTag(catalog.get());
+    }
+
+    public EntityTag catalogTag(long version) {
+        return new EntityTag(NODE + "-c" + version);
+    }
+
+    /**
+     * Orders embed their perfumes and user, so their tag also moves with catalog and user changes.
+     */
+    public EntityTag orderTag() {
+        return new EntityTag(NODE + "-o" + orders.get() + "." + catalog.get() + "." + users.get());
+    }
+
+    public void onCatalogChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PerfumeChangedEvent event) {
+        catalog.incrementAndGet();
+    }
+
+    public void onUserChanged(@Observes @Priority(CacheInvalidationEvent.VERSION) CacheInvalidationEvent event) {
+        if (event != null && event.concerns(User.class)) {
+            users.incrementAndGet();
+        }
+    }
+
+    /**
+     * Catalog writes committed on another node; observed after {@link SharedEntityCache} has evicted the rows.
+     */
+    public void onRemoteCatalogChange(@Observes @Priority(CacheInvalidationEvent.VERSION) CacheInvalidationEvent event) {
+        if (event != null && event.isRemote() && event.concerns(Perfume.class)) {
+            catalog.incrementAndGet();
+        }
+    }
+
+    /**
+     * Order writes committed on another node, which announces them from {@link #ordersChanged()}.
+     */
+    public void onRemoteOrderChange(@Observes @Priority(CacheInvalidationEvent.VERSION) CacheInvalidationEvent event) {
+        if (event != null && event.isRemote() && event.concerns(Order.class)) {
+            orders.incrementAndGet();
+        }
+    }
+
+    /**
+     * Moves the order tag here after commit, and on the other nodes through the invalidation bus.
+     */
+    public void ordersChanged() {
+        invalidationBus.invalidateAll(Order.class);
+        if (txRegistry == null || txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            orders.incrementAndGet();
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    orders.incrementAndGet();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.parfumerie.service;
+
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationBus;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import com.parfumerie.messaging.PerfumeChangedEvent;
+import jakarta.annotation.Priority;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the JPA shared cache of Perfume and User coherent across nodes and reports its hit ratios.
+ * Local commits update the shared cache directly; changes made on other nodes arrive through
+ * {@link CacheInvalidationBus} and evict the entry here.
+ */
+@ApplicationScoped
+public class SharedEntityCache {
+
+    public static class EntityStats {
+        public long hits;
+        public long misses;
+        public double hitRatio;
+        public long remoteEvictions;
+    }
+
+    /**
+     * Query hint for bulk UPDATEs that touch known rows: without it EclipseLink drops the whole
+     * entity class from the shared cache; callers turn it off and {@link #evictAfterWrite} the rows.
+     */
+    public static final String INVALIDATE_HINT = "eclipselink.query.invalidate-shared-cache";
+
+    private static final int BULK_THRESHOLD = 32;
+
+    private static final List<Class<?>> CACHED = List.of(Perfume.class, User.class);
+
+    private static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong remoteEvictions = new AtomicLong();
+    }
+
+    private final Map<Class<?>, Counters> counters = new LinkedHashMap<>();
+
+    @PersistenceUnit(unitName = "parfumeriePU")
+    private EntityManagerFactory emf;
+
+    @Inject
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    public SharedEntityCache() {
+        for (Class<?> type : CACHED) {
+            counters.put(type, new Counters());
+        }
+    }
+
+    /**
+     * Counts whether a find by id for this entity is about to be served from the shared cache.
+     */
+    public void recordLookup(Class<?> type, Object id) {
+        Counters c = counters.get(type);
+        if (c == null || id == null) return;
+        if (emf.getCache().contains(type, id)) {
+            c.hits.incrementAndGet();
+        } else {
+            c.misses.incrementAndGet();
+        }
+    }
+
+    /**
+     * Evicts one row written by a bulk UPDATE, now and again once the transaction completes,
+     * so a concurrent reader cannot put the pre-update row back before commit.
+     */
+    public void evictAfterWrite(Class<?> type, Object id) {
+        emf.getCache().evict(type, id);
+        if (txRegistry == null || txRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) return;
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                emf.getCache().evict(type, id);
+            }
+        });
+    }
+
+    /**
+     * Announces catalog writes, stock included, to the other nodes once the transaction commits.
+     */
+    public void onPerfumeChanged(@Observes PerfumeChangedEvent event) {
+        if (event == null) return;
+        if (event.getIds().size() > BULK_THRESHOLD) {
+            cacheInvalidationBus.invalidateAll(Perfume.class);
+            return;
+        }
+        for (Long id : event.getIds()) {
+            cacheInvalidationBus.invalidate(Perfume.class, id, null);
+        }
+    }
+
+    public void onInvalidation(@Observes @Priority(CacheInvalidationEvent.EVICT) CacheInvalidationEvent event) {
+        if (event == null || !event.isRemote()) return;
+        for (Class<?> type : CACHED) {
+            if (event.concerns(type)) {
+                if (event.isTypeWide()) emf.getCache().evict(type);
+                else emf.getCache().evict(type, event.getEntityId());
+                counters.get(type).remoteEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, EntityStats> getStats() {
+        Map<String, EntityStats> stats = new LinkedHashMap<>();
+        counters.forEach((type, c) -> {
+            EntityStats s = new EntityStats();
+            s.hits = c.hits.get();
+            s.misses = c.misses.get();
+            long total = s.hits + s.misses;
+            s.hitRatio = total == 0 ? 0 : (double) s.hits / total;
+            s.remoteEvictions = c.remoteEvictions.get();
+            stats.put(type.getSimpleName(), s);
+        });
+        return stats;
+    }
+}
@@ -0,0 +1,85 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.IdempotencyRecord;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.OptimisticLockException;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency store in the idempotency_keys table, for deployments with several nodes.
+ * A duplicate arriving while the first request runs polls the row until it is completed or released.
+ */
+@ApplicationScoped
+public class TableIdempotencyStore implements IdempotencyStore {
+
+    private final long ttlMs = AppConfig.getLong("orders.idempotency.ttl-ms", 24 * 60 * 60 * 1000L);
+    private final long claimMs = AppConfig.getLong("orders.idempotency.claim-ms", 30_000);
+    private final long pollMs = AppConfig.getLong("orders.idempotency.poll-ms", 50);
+
+    @Inject
+    private IdempotencyRecords records;
+
+    @Override
+    public Claim claim(String key, String fingerprint, long waitMs) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plusNanos(ttlMs * 1_000_000);
+            LocalDateTime staleBefore = now.minusNanos(claimMs * 1_000_000);
+            IdempotencyRecord record = records.find(key);
+            try {
+                if (record == null) {
+                    records.insert(key, fingerprint, now, expiresAt);
+                    return Claim.NEW;
+                }
+                boolean expired = record.getExpiresAt().isBefore(now);
+                if (!expired && !record.getFingerprint().equals(fingerprint)) return Claim.MISMATCH;
+                if (!expired && record.getBody() != null) return Claim.replay(record.getBody());
+                if ((expired || record.getClaimedAt().isBefore(staleBefore))
+                        && records.takeOver(key, fingerprint, now, staleBefore, expiresAt)) {
+                    return Claim.NEW;
+                }
+            } catch (RuntimeException ex) {
+                if (!isConflict(ex)) throw ex;
+                // another request inserted or took over the key first; its row is read on the next pass
+            }
+
+            if (System.currentTimeMillis() + pollMs > deadline) return Claim.IN_PROGRESS;
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Claim.IN_PROGRESS;
+            }
+        }
+    }
+
+    /**
+     * A duplicate key (SQLState class 23) or an optimistic-lock failure anywhere in the cause chain;
+     * anything else (connection loss, timeouts) is not a lost race and goes back to the caller.
+     */
+    static boolean isConflict(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof EntityExistsException || t instanceof OptimisticLockException) return true;
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void complete(String key, String body) {
+        records.complete(key, body, LocalDateTime.now().plusNanos(ttlMs * 1_000_000));
+    }
+
+    @Override
+    public void release(String key) {
+        records.release(key);
+    }
+}
@@ -0,0 +1,58 @@
+package com.parfumerie.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Accent-insensitive tokenizer for catalog text: "Étoile d'Ambre" becomes [etoile, ambre],
+ * "Œillet" becomes [oeillet].
+ */
+public final class TextNormalizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "de", "du", "des", "la", "le", "les", "un", "une", "et", "en", "au", "aux",
+            "pour", "par", "sur", "avec", "the", "and", "of");
+
+    private TextNormalizer() {}
+
+    /**
+     * Lowercases and strips diacritics, keeping only letters, digits and single spaces.
+     */
+    public static String fold(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                char lower = Character.toLowerCase(c);
+                if (lower == '\u0153') out.append("oe");
+                else if (lower == '\u00e6') out.append("ae");
+                else out.append(lower);
+                space = false;
+            } else if (!space) {
+                out.append(' ');
+                space = true;
+            }
+        }
+        int end = out.length();
+        if (end > 0 && out.charAt(end - 1) == ' ') out.setLength(end - 1);
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+        if (folded.isEmpty()) return tokens;
+        for (String token : folded.split(" ")) {
+            if (token.length() < 2 || STOPWORDS.contains(token)) continue;
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
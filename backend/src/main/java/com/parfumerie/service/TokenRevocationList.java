@@ -0,0 +1,97 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.messaging.TokenRevokedEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded set of revoked token ids, each kept only until the token would have expired anyway.
+ * It fails closed: once the set is full, a revocation becomes a per-user cutoff that rejects every
+ * token of that user issued no later than the revoked one, rather than forgetting a live revocation.
+ */
+@ApplicationScoped
+public class TokenRevocationList {
+
+    private static final class Cutoff {
+        final long issuedAt;
+        final long until;
+
+        Cutoff(long issuedAt, long until) {
+            this.issuedAt = issuedAt;
+            this.until = until;
+        }
+
+        Cutoff widen(Cutoff other) {
+            return new Cutoff(Math.max(issuedAt, other.issuedAt), Math.max(until, other.until));
+        }
+    }
+
+    private final int maxSize = AppConfig.getInt("auth.token.revocation-size", 10_000);
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Map<Long, Cutoff> cutoffs = new ConcurrentHashMap<>();
+
+    public boolean isRevoked(String tokenId, Long userId, long issuedAt) {
+        long now = System.currentTimeMillis();
+        if (tokenId != null) {
+            Long expiresAt = revoked.get(tokenId);
+            if (expiresAt != null) {
+                if (expiresAt > now) return true;
+                revoked.remove(tokenId, expiresAt);
+            }
+        }
+        if (userId != null) {
+            Cutoff cutoff = cutoffs.get(userId);
+            if (cutoff != null) {
+                if (cutoff.until > now) return issuedAt <= cutoff.issuedAt;
+                cutoffs.remove(userId, cutoff);
+            }
+        }
+        return false;
+    }
+
+    public void revoke(String tokenId, Long userId, long issuedAtMillis, long expiresAtMillis) {
+        if (tokenId == null || expiresAtMillis <= System.currentTimeMillis()) return;
+        if (revoked.size() >= maxSize && !revoked.containsKey(tokenId)) {
+            purgeExpired();
+            if (revoked.size() >= maxSize && userId != null) {
+                cutoffs.merge(userId, new Cutoff(issuedAtMillis, expiresAtMillis), Cutoff::widen);
+                return;
+            }
+        }
+        revoked.put(tokenId, expiresAtMillis);
+    }
+
+    /**
+     * Rejects every token of the user issued up to {@code issuedAtMillis}; kept until {@code untilMillis},
+     * when the last of them has expired.
+     */
+    public void revokeIssuedUpTo(Long userId, long issuedAtMillis, long untilMillis) {
+        if (userId == null || untilMillis <= System.currentTimeMillis()) return;
+        cutoffs.merge(userId, new Cutoff(issuedAtMillis, untilMillis), Cutoff::widen);
+    }
+
+    /**
+     * Applies a revocation made on another node.
+     */
+    void onRemoteRevocation(@Observes TokenRevokedEvent event) {
+        if (event.getTokenId() == null) {
+            revokeIssuedUpTo(event.getUserId(), event.getIssuedAt(), event.getExpiresAt());
+            return;
+        }
+        revoke(event.getTokenId(), event.getUserId(), event.getIssuedAt(), event.getExpiresAt());
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(exp -> exp <= now);
+        cutoffs.values().removeIf(cutoff -> cutoff.until <= now);
+    }
+}
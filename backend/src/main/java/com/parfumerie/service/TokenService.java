@@ -0,0 +1,195 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Role;
+import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationBus;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed session tokens (JWT compact form).
+ * Verification is a signature and expiry check only: no database access, no bcrypt.
+ */
+@ApplicationScoped
+public class TokenService {
+
+    public static class Claims {
+        public final Long userId;
+        public final String email;
+        public final Role role;
+        public final String tokenId;
+        public final long issuedAt;
+        public final long expiresAt;
+
+        Claims(Long userId, String email, Role role, String tokenId, long issuedAt, long expiresAt) {
+            this.userId = userId;
+            this.email = email;
+            this.role = role;
+            this.tokenId = tokenId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class IssuedToken {
+        public final String token;
+        public final long expiresAt;
+
+        IssuedToken(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}"
+            .getBytes(StandardCharsets.UTF_8));
+
+    private final long ttlMillis = AppConfig.getLong("auth.token.ttl-seconds", 3600) * 1000L;
+    private final byte[] secret = loadSecret();
+
+    @Inject
+    private TokenRevocationList revocationList;
+
+    @Inject
+    private CacheInvalidationBus invalidationBus;
+
+    /**
+     * Creates the bean at deployment, so a missing signing secret fails the deployment instead of the first login.
+     */
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+    }
+
+    public static boolean looksLikeToken(String value) {
+        return value != null && value.chars().filter(c -> c == '.').count() == 2;
+    }
+
+    public IssuedToken issue(User user) {
+        return issue(user.getId(), user.getEmail(), user.getRole());
+    }
+
+    /**
+     * {@code iat} keeps millisecond precision (a fractional NumericDate) so that a per-user revocation
+     * cutoff never catches the token issued right after it.
+     */
+    public IssuedToken issue(Long userId, String email, Role role) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        String payload = Json.createObjectBuilder()
+                .add("sub", String.valueOf(userId))
+                .add("email", email)
+                .add("role", role != null ? role.name() : Role.CLIENT.name())
+                .add("jti", UUID.randomUUID().toString())
+                .add("iat", BigDecimal.valueOf(now, 3))
+                .add("exp", expiresAt / 1000L)
+                .build()
+                .toString();
+        String signingInput = HEADER + "." + base64Url(payload.getBytes(StandardCharsets.UTF_8));
+        return new IssuedToken(signingInput + "." + base64Url(sign(signingInput)), expiresAt);
+    }
+
+    /**
+     * Returns the claims of a well-signed, unexpired, non-revoked token, or null.
+     */
+    public Claims verify(String token) {
+        if (!looksLikeToken(token)) return null;
+        int lastDot = token.lastIndexOf('.');
+        String signingInput = token.substring(0, lastDot);
+        if (!signingInput.startsWith(HEADER + ".")) return null;
+
+        byte[] signature;
+        byte[] payloadBytes;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+            payloadBytes = Base64.getUrlDecoder().decode(signingInput.substring(HEADER.length() + 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(signingInput))) return null;
+
+        Claims claims;
+        try (JsonReader reader = Json.createReader(new StringReader(new String(payloadBytes, StandardCharsets.UTF_8)))) {
+            JsonObject json = reader.readObject();
+            claims = new Claims(
+                    Long.valueOf(json.getString("sub")),
+                    json.getString("email"),
+                    Role.valueOf(json.getString("role")),
+                    json.getString("jti"),
+                    json.getJsonNumber("iat").bigDecimalValue().movePointRight(3).longValue(),
+                    json.getJsonNumber("exp").longValue() * 1000L
+            );
+        } catch (RuntimeException ex) {
+            return null;
+        }
+
+        if (claims.expiresAt <= System.currentTimeMillis()) return null;
+        if (revocationList.isRevoked(claims.tokenId, claims.userId, claims.issuedAt)) return null;
+        return claims;
+    }
+
+    public void revoke(Claims claims) {
+        if (claims == null) return;
+        revocationList.revoke(claims.tokenId, claims.userId, claims.issuedAt, claims.expiresAt);
+        invalidationBus.revokeToken(claims.tokenId, claims.userId, claims.issuedAt, claims.expiresAt);
+    }
+
+    /**
+     * Revokes every token the user holds, on this node now and on the others at commit; for password
+     * and email changes, after which an old token must neither keep working nor speak for the old address.
+     */
+    public void revokeAll(Long userId) {
+        if (userId == null) return;
+        long now = System.currentTimeMillis();
+        revocationList.revokeIssuedUpTo(userId, now, now + ttlMillis);
+        invalidationBus.revokeUserTokens(userId, now, now + ttlMillis);
+    }
+
+    private byte[] sign(String signingInput) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 unavailable", ex);
+        }
+    }
+
+    /**
+     * Every node must sign with the same secret, or a token issued on one is rejected by the others.
+     * A random per-process key is only allowed when parfumerie.auth.token.single-node is set.
+     */
+    private static byte[] loadSecret() {
+        String configured = AppConfig.getString("auth.token.secret", null);
+        if (configured != null) {
+            return configured.getBytes(StandardCharsets.UTF_8);
+        }
+        if (!AppConfig.getBoolean("auth.token.single-node", false)) {
+            throw new IllegalStateException("parfumerie.auth.token.secret is required "
+                    + "(set parfumerie.auth.token.single-node=true to sign with a random key on a single node)");
+        }
+        System.out.println("parfumerie.auth.token.secret not set - single node, using a random signing key");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
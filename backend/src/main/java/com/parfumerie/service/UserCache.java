@@ -0,0 +1,175 @@
+package com.parfumerie.service;
+
+import com.parfumerie.config.AppConfig;
+import com.parfumerie.domain.Role;
+import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of user rows keyed by id and by normalized email.
+ * Each entry carries the row's change counter; invalidations record the newest known
+ * version so a load that still returns an older row can be detected and refreshed.
+ */
+@ApplicationScoped
+public class UserCache {
+
+    public static class Stats {
+        public long hits;
+        public long misses;
+        public long staleLoads;
+        public int size;
+        public int maxSize;
+    }
+
+    private static final class Entry {
+        final Long id;
+        final String firstName;
+        final String lastName;
+        final String email;
+        final String phone;
+        final String address;
+        final String passwordHash;
+        final Role role;
+        final long version;
+        final long expiresAt;
+
+        Entry(User u, long expiresAt) {
+            this.id = u.getId();
+            this.firstName = u.getFirstName();
+            this.lastName = u.getLastName();
+            this.email = u.getEmail();
+            this.phone = u.getPhone();
+            this.address = u.getAddress();
+            this.passwordHash = u.getPassword();
+            this.role = u.getRole();
+            this.version = versionOf(u);
+            this.expiresAt = expiresAt;
+        }
+
+        User toUser() {
+            User u = new User();
+            u.setId(id);
+            u.setFirstName(firstName);
+            u.setLastName(lastName);
+            u.setEmail(email);
+            u.setPhone(phone);
+            u.setAddress(address);
+            u.setPassword(passwordHash);
+            u.setRole(role);
+            u.setVersion(version);
+            return u;
+        }
+    }
+
+    private final int maxSize = AppConfig.getInt("users.cache.size", 10_000);
+    private final long ttlMillis = AppConfig.getLong("users.cache.ttl-seconds", 600) * 1000L;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleLoads = new AtomicLong();
+
+    private final Map<String, Long> idsByEmail = new HashMap<>();
+    private final Map<Long, Long> minVersions = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private final LinkedHashMap<Long, Entry> byId = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > maxSize) {
+                idsByEmail.remove(eldest.getValue().email, eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns a detached copy of the cached user; its orders collection is not loaded.
+     */
+    public synchronized User getById(Long id) {
+        if (id == null) return null;
+        Entry e = byId.get(id);
+        if (e == null || e.expiresAt <= System.currentTimeMillis()) {
+            if (e != null) remove(id);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.toUser();
+    }
+
+    public synchronized User getByEmail(String normalizedEmail) {
+        Long id = normalizedEmail != null ? idsByEmail.get(normalizedEmail) : null;
+        if (id == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        return getById(id);
+    }
+
+    /**
+     * True when an invalidation announced a newer version than the row just loaded.
+     */
+    public synchronized boolean isStale(User loaded) {
+        Long floor = minVersions.get(loaded.getId());
+        boolean stale = floor != null && versionOf(loaded) < floor;
+        if (stale) staleLoads.incrementAndGet();
+        return stale;
+    }
+
+    public synchronized void put(User u) {
+        if (u == null || u.getId() == null || maxSize <= 0) return;
+        long version = versionOf(u);
+        Long floor = minVersions.get(u.getId());
+        if (floor != null && version < floor) return;
+
+        Entry current = byId.get(u.getId());
+        if (current != null && current.version > version) return;
+        if (current != null) idsByEmail.remove(current.email, current.id);
+
+        byId.put(u.getId(), new Entry(u, System.currentTimeMillis() + ttlMillis));
+        idsByEmail.put(u.getEmail(), u.getId());
+    }
+
+    public synchronized void invalidate(Long id, Long version) {
+        if (id == null) return;
+        remove(id);
+        if (version != null) {
+            minVersions.merge(id, version, Math::max);
+        }
+    }
+
+    public void onInvalidation(@Observes CacheInvalidationEvent event) {
+        if (event == null || !event.concerns(User.class)) return;
+        invalidate(event.getEntityId(), event.getVersion());
+    }
+
+    public synchronized Stats getStats() {
+        Stats s = new Stats();
+        s.hits = hits.get();
+        s.misses = misses.get();
+        s.staleLoads = staleLoads.get();
+        s.size = byId.size();
+        s.maxSize = maxSize;
+        return s;
+    }
+
+    private void remove(Long id) {
+        Entry e = byId.remove(id);
+        if (e != null) idsByEmail.remove(e.email, id);
+    }
+
+    private static long versionOf(User u) {
+        return u.getVersion() != null ? u.getVersion() : 0L;
+    }
+}
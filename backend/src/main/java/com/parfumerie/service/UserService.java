@@ -2,11 +2,17 @@ package com.parfumerie.service;
 
 import com.parfumerie.domain.Role;
 import com.parfumerie.domain.User;
+import com.parfumerie.messaging.CacheInvalidationBus;
+import jakarta.annotation.Resource;
+import jakarta.ejb.SessionContext;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
-import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * User business logic: validation, hashing, authentication, and updates.
@@ -17,9 +23,39 @@ public class UserService {
     @PersistenceContext(unitName = "parfumeriePU")
     private EntityManager em;
 
+    @Inject
+    private PasswordHasher passwordHasher;
+
+    @Inject
+    private UserCache userCache;
+
+    @Inject
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Inject
+    private SharedEntityCache sharedEntityCache;
+
+    @Inject
+    private TokenService tokenService;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    @Resource
+    private ManagedExecutorService managedExecutor;
+
     public User createUser(String firstName, String lastName, String email, String phone,
                            String plainPassword, String address, Role role) {
+        validateNewUser(firstName, lastName, email, phone, plainPassword);
+        String passwordHash = passwordHasher.hashNow(plainPassword);
+        return registerUser(firstName, lastName, email, phone, passwordHash, address, role);
+    }
 
+    /**
+     * Cheap checks run before a password is hashed, so invalid or duplicate signups never cost a bcrypt round.
+     */
+    public void validateNewUser(String firstName, String lastName, String email, String phone,
+                                String plainPassword) {
         email = normalizeEmail(email);
 
         if (firstName == null || firstName.isBlank())
@@ -35,8 +71,18 @@ public class UserService {
 
         if (findByEmail(email) != null)
             throw new IllegalArgumentException("email deja utilise");
+    }
 
-        String passwordHash = BCrypt.hashpw(plainPassword, BCrypt.gensalt(12));
+    /**
+     * Persists a user whose password was already hashed by {@link PasswordHasher}.
+     */
+    public User registerUser(String firstName, String lastName, String email, String phone,
+                             String passwordHash, String address, Role role) {
+        email = normalizeEmail(email);
+        if (passwordHash == null || passwordHash.isBlank())
+            throw new IllegalArgumentException("password is required");
+        if (findByEmail(email) != null)
+            throw new IllegalArgumentException("email deja utilise");
 
         User u = new User();
         u.setFirstName(firstName);
@@ -46,25 +92,46 @@ public class UserService {
         u.setPassword(passwordHash);
         u.setAddress(address);
         u.setRole(role != null ? role : Role.CLIENT);
+        u.setVersion(1L);
 
         em.persist(u);
         return u;
     }
 
+    /**
+     * Served from {@link UserCache} when possible; a cache hit returns a detached copy.
+     */
     public User findUser(Long id) {
-        return em.find(User.class, id);
+        if (id == null) return null;
+        User cached = userCache.getById(id);
+        if (cached != null) return cached;
+
+        sharedEntityCache.recordLookup(User.class, id);
+        User u = em.find(User.class, id);
+        return u != null ? remember(u) : null;
     }
 
+    /**
+     * Served from {@link UserCache} when possible; a cache hit returns a detached copy.
+     * On a miss the row is refreshed only if another writer already announced a newer version.
+     */
     public User findByEmail(String email) {
         email = normalizeEmail(email);
         if (email == null || email.isBlank()) return null;
+        User cached = userCache.getByEmail(email);
+        if (cached != null) return cached;
+
         TypedQuery<User> q = em.createQuery("SELECT u FROM User u WHERE u.email = :email", User.class);
         q.setParameter("email", email);
         User u = q.getResultStream().findFirst().orElse(null);
-        if (u != null) {
-            
+        return u != null ? remember(u) : null;
+    }
+
+    private User remember(User u) {
+        if (userCache.isStale(u)) {
             em.refresh(u);
         }
+        userCache.put(u);
         return u;
     }
 
@@ -73,16 +140,73 @@ public class UserService {
         User u = findByEmail(email);
         if (u == null) return null;
         if (u.getPassword() == null || u.getPassword().isBlank()) return null;
-        if (!BCrypt.checkpw(plainPassword, u.getPassword())) return null;
+        if (!passwordHasher.verifyNow(plainPassword, u.getPassword())) return null;
+        rehashIfNeeded(self(), u, plainPassword);
         return u;
     }
 
+    /**
+     * Looks the user up on the calling thread and verifies the password on the hashing pool.
+     */
+    public CompletableFuture<User> authenticateAsync(String email, String plainPassword) {
+        User u = findByEmail(email);
+        if (u == null || u.getPassword() == null || u.getPassword().isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        UserService self = self();
+        return passwordHasher.verify(plainPassword, u.getPassword()).thenApply(ok -> {
+            if (!ok) return null;
+            rehashIfNeeded(self, u, plainPassword);
+            return u;
+        });
+    }
+
+    /**
+     * Stores a hash recomputed at the target cost, unless the password changed in the meantime.
+     */
+    public void replacePasswordHash(Long id, String expectedHash, String newHash) {
+        User u = em.find(User.class, id);
+        if (u == null || !expectedHash.equals(u.getPassword())) return;
+        u.setPassword(newHash);
+        long version = (u.getVersion() != null ? u.getVersion() : 0L) + 1;
+        u.setVersion(version);
+        cacheInvalidationBus.invalidate(User.class, u.getId(), version);
+    }
+
+    /**
+     * After a successful check, rehashes in the background when the stored cost differs from the target.
+     * The login never waits for it; if the hashing pool is busy the upgrade simply waits for a later login.
+     */
+    private void rehashIfNeeded(UserService self, User u, String plainPassword) {
+        String oldHash = u.getPassword();
+        if (!passwordHasher.needsRehash(oldHash)) return;
+        Long id = u.getId();
+        try {
+            passwordHasher.hash(plainPassword)
+                    .thenAcceptAsync(newHash -> self.replacePasswordHash(id, oldHash, newHash), managedExecutor)
+                    .exceptionally(ex -> {
+                        System.err.println("Password rehash skipped for user " + id + ": " + ex.getMessage());
+                        return null;
+                    });
+        } catch (HashingOverloadedException ex) {
+            // Deliberately skipped under load: the login already succeeded, and the next one retries the upgrade.
+            passwordHasher.recordRehashSkipped();
+        }
+    }
+
+    private UserService self() {
+        return sessionContext.getBusinessObject(UserService.class);
+    }
+
     public User updateUser(Long id, String firstName, String lastName, String email, String phone,
                            String plainPassword, String address) {
         if (id == null) return null;
 
         User u = em.find(User.class, id);
         if (u == null) return null;
+        if (userCache.isStale(u)) {
+            em.refresh(u);
+        }
 
         String normalizedEmail = null;
         if (email != null) {
@@ -97,6 +221,7 @@ public class UserService {
         }
 
         boolean changed = false;
+        boolean credentialsChanged = false;
 
         if (firstName != null) {
             if (firstName.isBlank()) throw new IllegalArgumentException("firstName is required");
@@ -109,6 +234,7 @@ public class UserService {
             changed = true;
         }
         if (normalizedEmail != null) {
+            credentialsChanged = !normalizedEmail.equals(u.getEmail());
             u.setEmail(normalizedEmail);
             changed = true;
         }
@@ -119,9 +245,10 @@ public class UserService {
         }
         if (plainPassword != null) {
             if (plainPassword.isBlank()) throw new IllegalArgumentException("password is required");
-            String passwordHash = BCrypt.hashpw(plainPassword, BCrypt.gensalt(12));
+            String passwordHash = passwordHasher.hashNow(plainPassword);
             u.setPassword(passwordHash);
             changed = true;
+            credentialsChanged = true;
         }
         if (address != null) {
             u.setAddress(address);
@@ -132,6 +259,13 @@ public class UserService {
             throw new IllegalArgumentException("No fields to update");
         }
 
+        long version = (u.getVersion() != null ? u.getVersion() : 0L) + 1;
+        u.setVersion(version);
+        cacheInvalidationBus.invalidate(User.class, u.getId(), version);
+        if (credentialsChanged) {
+            tokenService.revokeAll(u.getId());
+        }
+
         return u;
     }
 
@@ -0,0 +1,56 @@
+package com.parfumerie;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots parfumeriePU against an in-memory H2 database, outside the container, for tests.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    public static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MODE=LEGACY";
+    }
+
+    public static EntityManagerFactory open(String name) {
+        return open(name, Map.of());
+    }
+
+    /**
+     * Same unit as production (entities, mappings, shared cache), but resource-local on a private H2 database.
+     */
+    public static EntityManagerFactory open(String name, Map<String, String> overrides) {
+        Map<String, String> props = new HashMap<>();
+        props.put("jakarta.persistence.transactionType", "RESOURCE_LOCAL");
+        props.put("jakarta.persistence.jtaDataSource", "");
+        props.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        props.put("jakarta.persistence.jdbc.url", url(name));
+        props.put("jakarta.persistence.jdbc.user", "sa");
+        props.put("jakarta.persistence.jdbc.password", "");
+        props.put("eclipselink.target-server", "None");
+        props.put("eclipselink.logging.level", "WARNING");
+        props.putAll(overrides);
+        return Persistence.createEntityManagerFactory("parfumeriePU", props);
+    }
+
+    /**
+     * Sets a container-injected field (@PersistenceContext, @Inject) on a bean built with {@code new}.
+     */
+    public static <T> T inject(T bean, String field, Object value) {
+        try {
+            Field f = bean.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(bean, value);
+            return bean;
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot inject " + field, ex);
+        }
+    }
+}
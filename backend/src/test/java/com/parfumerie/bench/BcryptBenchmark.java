@@ -0,0 +1,38 @@
+package com.parfumerie.bench;
+
+import com.parfumerie.service.PasswordHasher;
+
+import java.util.List;
+
+/**
+ * Standalone runner that times bcrypt at each cost factor on this machine and suggests
+ * the highest cost within a latency budget (set it with -Dparfumerie.auth.bcrypt.cost).
+ *
+ * Usage: BcryptBenchmark [budgetMs=250] [fromCost=8] [toCost=15] [rounds=3]
+ */
+public class BcryptBenchmark {
+
+    public static void main(String[] args) {
+        double budgetMs = args.length > 0 ? Double.parseDouble(args[0]) : 250;
+        int fromCost = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int toCost = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.println("cost  median_ms");
+        List<PasswordHasher.CostTiming> timings = PasswordHasher.benchmark(fromCost, toCost, rounds);
+        int recommended = -1;
+        for (PasswordHasher.CostTiming t : timings) {
+            System.out.printf("%4d  %9.1f%n", t.cost, t.millis);
+            if (t.millis <= budgetMs) {
+                recommended = t.cost;
+            }
+        }
+
+        if (recommended < 0) {
+            System.out.println("No cost fits in " + budgetMs + " ms; lower fromCost or raise the budget.");
+        } else {
+            System.out.println("Recommended: -Dparfumerie.auth.bcrypt.cost=" + recommended
+                    + " (budget " + budgetMs + " ms per hash)");
+        }
+    }
+}
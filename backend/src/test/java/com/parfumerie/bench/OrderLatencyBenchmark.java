@@ -0,0 +1,106 @@
+package com.parfumerie.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Standalone runner that times POST /orders against a running instance for 1, 10 and 50-line carts.
+ * It first restocks the perfumes it uses through PUT /perfumes/batch, so point it at a dev database.
+ *
+ * Usage: OrderLatencyBenchmark [baseUrl=http://localhost:8080/api] [email=admin@parfumerie.local]
+ *                              [password=admin] [userId=1] [rounds=50]
+ */
+public class OrderLatencyBenchmark {
+
+    private static final int[] LINES = {1, 10, 50};
+    private static final int WARMUP = 5;
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        String email = args.length > 1 ? args[1] : "admin@parfumerie.local";
+        String password = args.length > 2 ? args[2] : "admin";
+        long userId = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+
+        HttpClient http = HttpClient.newHttpClient();
+        String auth = "Bearer " + Base64.getEncoder()
+                .encodeToString((email + ":" + password).getBytes(StandardCharsets.UTF_8));
+
+        String list = send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/perfumes?fields=id&limit=50"))
+                .header("Accept", "application/json").GET().build(), 200);
+        List<Long> ids = new ArrayList<>();
+        Matcher m = ID.matcher(list);
+        while (m.find()) ids.add(Long.parseLong(m.group(1)));
+        if (ids.isEmpty()) {
+            System.out.println("No perfumes found at " + baseUrl);
+            return;
+        }
+
+        StringBuilder restock = new StringBuilder("[");
+        for (Long id : ids) {
+            if (restock.length() > 1) restock.append(',');
+            restock.append("{\"id\":").append(id).append(",\"stock\":1000000,\"available\":true}");
+        }
+        send(http, json(baseUrl + "/perfumes/batch", auth).PUT(body(restock.append(']').toString())).build(), 200);
+
+        System.out.println("lines  rounds     p50_ms     p95_ms     max_ms");
+        for (int lines : LINES) {
+            String cart = cart(userId, ids, lines);
+            for (int i = 0; i < WARMUP; i++) {
+                send(http, json(baseUrl + "/orders", auth).POST(body(cart)).build(), 201);
+            }
+            double[] millis = new double[rounds];
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                send(http, json(baseUrl + "/orders", auth).POST(body(cart)).build(), 201);
+                millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+            Arrays.sort(millis);
+            System.out.printf("%5d  %6d  %9.1f  %9.1f  %9.1f%n", lines, rounds,
+                    percentile(millis, 50), percentile(millis, 95), millis[millis.length - 1]);
+        }
+    }
+
+    private static String cart(long userId, List<Long> ids, int lines) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) items.append(',');
+            items.append("{\"perfumeId\":").append(ids.get(i % ids.size())).append(",\"quantity\":1}");
+        }
+        return "{\"userId\":" + userId + ",\"items\":[" + items + "]}";
+    }
+
+    private static HttpRequest.Builder json(String url, String auth) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .header("Authorization", auth);
+    }
+
+    private static HttpRequest.BodyPublisher body(String json) {
+        return HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8);
+    }
+
+    private static String send(HttpClient http, HttpRequest request, int expected) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " -> "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static double percentile(double[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
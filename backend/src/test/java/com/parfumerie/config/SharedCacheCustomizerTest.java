@@ -0,0 +1,51 @@
+package com.parfumerie.config;
+
+import com.parfumerie.TestDatabase;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.internal.identitymaps.SoftCacheWeakIdentityMap;
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Shared cache size and expiry of parfumeriePU come from parfumerie.cache.*, with the former defaults otherwise.
+ */
+class SharedCacheCustomizerTest {
+
+    private static final String DB = "shared_cache_customizer";
+
+    private EntityManagerFactory emf;
+
+    @AfterEach
+    void close() {
+        System.clearProperty("parfumerie.cache.perfume.size");
+        System.clearProperty("parfumerie.cache.perfume.expiry-ms");
+        if (emf != null) emf.close();
+    }
+
+    @Test
+    void sizesAndExpiryFollowConfiguration() {
+        System.setProperty("parfumerie.cache.perfume.size", "123");
+        System.setProperty("parfumerie.cache.perfume.expiry-ms", "4567");
+        emf = TestDatabase.open(DB);
+
+        ClassDescriptor perfume = descriptor(Perfume.class);
+        assertEquals(123, perfume.getIdentityMapSize());
+        assertEquals(4567, ((TimeToLiveCacheInvalidationPolicy) perfume.getCacheInvalidationPolicy()).getTimeToLive());
+        assertEquals(SoftCacheWeakIdentityMap.class, perfume.getIdentityMapClass());
+
+        ClassDescriptor user = descriptor(User.class);
+        assertEquals(2000, user.getIdentityMapSize());
+        assertEquals(300_000, ((TimeToLiveCacheInvalidationPolicy) user.getCacheInvalidationPolicy()).getTimeToLive());
+    }
+
+    private ClassDescriptor descriptor(Class<?> type) {
+        return emf.unwrap(JpaEntityManagerFactory.class).getServerSession().getDescriptor(type);
+    }
+}
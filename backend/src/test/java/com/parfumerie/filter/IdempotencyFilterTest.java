@@ -0,0 +1,124 @@
+package com.parfumerie.filter;
+
+import com.parfumerie.TestDatabase;
+import com.parfumerie.domain.IdempotencyRecord;
+import com.parfumerie.service.IdempotencyRecords;
+import com.parfumerie.service.IdempotencyStore;
+import com.parfumerie.service.TableIdempotencyStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Scoped Idempotency-Key values must fit the idempotency_keys table for the longest email and header
+ * the API accepts, so a long address never turns POST /orders into a database error.
+ */
+class IdempotencyFilterTest {
+
+    private static final String DB = "idempotency_filter";
+    private static final String FINGERPRINT = "f".repeat(64);
+
+    private static EntityManagerFactory emf;
+    private static EntityManager em;
+    private static TableIdempotencyStore store;
+
+    /** Runs each row operation in its own transaction, as REQUIRES_NEW does in the container. */
+    static class TransactionalRecords extends IdempotencyRecords {
+        private final IdempotencyRecords target =
+                TestDatabase.inject(new IdempotencyRecords(), "em", em);
+
+        @Override
+        public IdempotencyRecord find(String key) {
+            em.clear();
+            return target.find(key);
+        }
+
+        @Override
+        public void insert(String key, String fingerprint, LocalDateTime now, LocalDateTime expiresAt) {
+            inTransaction(() -> {
+                target.insert(key, fingerprint, now, expiresAt);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean takeOver(String key, String fingerprint, LocalDateTime now, LocalDateTime staleBefore,
+                                LocalDateTime expiresAt) {
+            return inTransaction(() -> target.takeOver(key, fingerprint, now, staleBefore, expiresAt));
+        }
+
+        @Override
+        public void complete(String key, String body, LocalDateTime expiresAt) {
+            inTransaction(() -> {
+                target.complete(key, body, expiresAt);
+                return null;
+            });
+        }
+
+        @Override
+        public void release(String key) {
+            inTransaction(() -> {
+                target.release(key);
+                return null;
+            });
+        }
+
+        private static <T> T inTransaction(Supplier<T> work) {
+            em.getTransaction().begin();
+            try {
+                T result = work.get();
+                em.getTransaction().commit();
+                return result;
+            } finally {
+                if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                em.clear();
+            }
+        }
+    }
+
+    @BeforeAll
+    static void open() {
+        emf = TestDatabase.open(DB);
+        em = emf.createEntityManager();
+        store = TestDatabase.inject(new TableIdempotencyStore(), "records", new TransactionalRecords());
+    }
+
+    @AfterAll
+    static void close() {
+        em.close();
+        emf.close();
+    }
+
+    @Test
+    void longestEmailAndKeyFitTheTableStore() {
+        String email = "a".repeat(138) + "@example.com";
+        String key = "k".repeat(128);
+        assertEquals(150, email.length());
+
+        String scopedKey = IdempotencyFilter.scopedKey(email, key);
+        assertEquals(64, scopedKey.length());
+
+        assertEquals(IdempotencyStore.Claim.Kind.NEW, store.claim(scopedKey, FINGERPRINT, 0).kind);
+        store.complete(scopedKey, "{\"id\":1}");
+
+        IdempotencyStore.Claim retry = store.claim(scopedKey, FINGERPRINT, 0);
+        assertEquals(IdempotencyStore.Claim.Kind.REPLAY, retry.kind);
+        assertEquals("{\"id\":1}", retry.body);
+    }
+
+    @Test
+    void keysStayScopedToTheCaller() {
+        assertNotEquals(IdempotencyFilter.scopedKey("a@example.com", "k"),
+                IdempotencyFilter.scopedKey("b@example.com", "k"));
+        assertNotEquals(IdempotencyFilter.scopedKey("a@example.com", ":k"),
+                IdempotencyFilter.scopedKey("a@example.com:", "k"));
+    }
+}
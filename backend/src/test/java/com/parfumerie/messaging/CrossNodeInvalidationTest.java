@@ -0,0 +1,180 @@
+package com.parfumerie.messaging;
+
+import com.parfumerie.TestDatabase;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.service.ResourceVersions;
+import com.parfumerie.service.SharedEntityCache;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.spi.ObserverMethod;
+import jakarta.jms.MapMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.jboss.weld.proxy.WeldClientProxy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes on one H2 database, each with its own JPA shared cache. Node A commits a price change;
+ * node B gets the invalidation message and must evict the row before its catalog version moves.
+ * The JMS hop is replaced by handing the MapMessage to node B's bus.
+ */
+class CrossNodeInvalidationTest {
+
+    private static final String DB = "cross_node_invalidation";
+
+    /** Observes just ahead of the version counters and records what they are about to see. */
+    @ApplicationScoped
+    public static class Probe {
+        static volatile EntityManagerFactory emf;
+        static volatile ResourceVersions versions;
+        static volatile Boolean cachedBeforeVersion;
+        static volatile long versionSeen = -1;
+
+        void beforeVersion(@Observes @Priority(CacheInvalidationEvent.VERSION - 1) CacheInvalidationEvent event) {
+            if (!event.isRemote() || !event.concerns(Perfume.class)) return;
+            cachedBeforeVersion = emf.getCache().contains(Perfume.class, event.getEntityId());
+            versionSeen = versions.catalogVersion();
+        }
+    }
+
+    private EntityManagerFactory nodeA;
+    private EntityManagerFactory nodeB;
+    private WeldContainer container;
+    private Long perfumeId;
+
+    @BeforeEach
+    void start() {
+        nodeA = TestDatabase.open(DB, Map.of("eclipselink.session-name", "node-a"));
+        nodeB = TestDatabase.open(DB, Map.of("eclipselink.session-name", "node-b", "eclipselink.ddl-generation", "none"));
+
+        container = new Weld()
+                .disableDiscovery()
+                .addBeanClasses(CacheInvalidationBus.class, SharedEntityCache.class, ResourceVersions.class, Probe.class)
+                .initialize();
+        TestDatabase.inject(instance(SharedEntityCache.class), "emf", nodeB);
+        Probe.emf = nodeB;
+        Probe.versions = container.select(ResourceVersions.class).get();
+        Probe.cachedBeforeVersion = null;
+        Probe.versionSeen = -1;
+
+        Perfume perfume = new Perfume();
+        perfume.setName("Vetiver");
+        perfume.setPrice(new BigDecimal("10.00"));
+        EntityManager em = nodeA.createEntityManager();
+        em.getTransaction().begin();
+        em.persist(perfume);
+        em.getTransaction().commit();
+        em.close();
+        perfumeId = perfume.getId();
+    }
+
+    @AfterEach
+    void stop() throws SQLException {
+        container.shutdown();
+        nodeA.close();
+        nodeB.close();
+        try (Connection c = DriverManager.getConnection(TestDatabase.url(DB), "sa", "");
+             Statement s = c.createStatement()) {
+            s.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void remoteChangeEvictsBeforeCatalogVersionMoves() throws Exception {
+        assertEquals(new BigDecimal("10.00"), priceOn(nodeB));
+        assertTrue(nodeB.getCache().contains(Perfume.class, perfumeId));
+
+        setPriceOn(nodeA, new BigDecimal("20.00"));
+        assertEquals(new BigDecimal("10.00"), priceOn(nodeB), "node B serves its cached row until told");
+
+        ResourceVersions versions = container.select(ResourceVersions.class).get();
+        long before = versions.catalogVersion();
+        CacheInvalidationBus bus = container.select(CacheInvalidationBus.class).get();
+        bus.receive(message(Map.of("entity", "Perfume", "id", perfumeId)));
+
+        assertEquals(Boolean.FALSE, Probe.cachedBeforeVersion, "row still cached when versions were about to move");
+        assertEquals(before, Probe.versionSeen, "version moved before the eviction");
+        assertEquals(before + 1, versions.catalogVersion());
+        assertFalse(nodeB.getCache().contains(Perfume.class, perfumeId));
+        assertEquals(new BigDecimal("20.00"), priceOn(nodeB));
+    }
+
+    @Test
+    void remoteOrderChangeMovesTheOrderVersion() throws Exception {
+        ResourceVersions versions = container.select(ResourceVersions.class).get();
+        long before = versions.ordersVersion();
+
+        CacheInvalidationBus bus = container.select(CacheInvalidationBus.class).get();
+        bus.receive(message(Map.of("entity", "Order")));
+
+        assertEquals(before + 1, versions.ordersVersion(), "node B would still answer 304 for an order changed on node A");
+
+        versions.ordersChanged();
+        assertEquals(before + 2, versions.ordersVersion(), "a local change must move the version once");
+    }
+
+    @Test
+    void sharedCacheObserverRunsBeforeVersionObservers() {
+        List<ObserverMethod<? super CacheInvalidationEvent>> observers = new ArrayList<>(container.getBeanManager()
+                .resolveObserverMethods(new CacheInvalidationEvent("Perfume", 1L, null, true)));
+        int evict = Integer.MAX_VALUE;
+        int firstVersion = Integer.MAX_VALUE;
+        for (ObserverMethod<? super CacheInvalidationEvent> observer : observers) {
+            if (observer.getBeanClass() == SharedEntityCache.class) evict = observer.getPriority();
+            if (observer.getBeanClass() == ResourceVersions.class) firstVersion = Math.min(firstVersion, observer.getPriority());
+        }
+        assertTrue(evict < firstVersion, "eviction priority " + evict + ", versions priority " + firstVersion);
+        assertTrue(firstVersion < Integer.MAX_VALUE, "version observers not found");
+    }
+
+    private <T> T instance(Class<T> type) {
+        Object proxy = container.select(type).get();
+        return type.cast(((WeldClientProxy) proxy).getMetadata().getContextualInstance());
+    }
+
+    private BigDecimal priceOn(EntityManagerFactory node) {
+        EntityManager em = node.createEntityManager();
+        try {
+            return em.find(Perfume.class, perfumeId).getPrice();
+        } finally {
+            em.close();
+        }
+    }
+
+    private void setPriceOn(EntityManagerFactory node, BigDecimal price) {
+        EntityManager em = node.createEntityManager();
+        em.getTransaction().begin();
+        em.find(Perfume.class, perfumeId).setPrice(price);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private static MapMessage message(Map<String, Object> body) {
+        return (MapMessage) Proxy.newProxyInstance(MapMessage.class.getClassLoader(), new Class<?>[]{MapMessage.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "itemExists" -> body.containsKey((String) args[0]);
+                    case "getString" -> (String) body.get((String) args[0]);
+                    case "getLong" -> ((Number) body.get((String) args[0])).longValue();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
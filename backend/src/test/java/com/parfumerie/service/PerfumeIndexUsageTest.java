@@ -0,0 +1,173 @@
+package com.parfumerie.service;
+
+import com.parfumerie.TestDatabase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.eclipse.persistence.logging.AbstractSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.logging.SessionLogEntry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the SQL that filtered and price-sorted catalog pages generate through H2's EXPLAIN
+ * and checks that each one is answered from its idx_perfumes_* index. Statements are explained
+ * with their parameters unbound, which is the plan a prepared statement gets.
+ */
+class PerfumeIndexUsageTest {
+
+    private static final String DB = "perfume_index_usage";
+    private static final int ROWS = 5000;
+
+    /** Records the SQL EclipseLink sends, without the trailing bind => [...] line. */
+    public static class SqlCapture extends AbstractSessionLog {
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public synchronized void log(SessionLogEntry entry) {
+            if (SessionLog.SQL.equals(entry.getNameSpace()) && entry.getMessage() != null) {
+                statements.add(entry.getMessage().split("\n", 2)[0]);
+            }
+        }
+    }
+
+    private static EntityManagerFactory emf;
+    private EntityManager em;
+    private PerfumeService service;
+
+    @BeforeAll
+    static void createCatalog() throws SQLException {
+        emf = TestDatabase.open(DB, Map.of(
+                "eclipselink.logging.logger", SqlCapture.class.getName(),
+                "eclipselink.logging.level.sql", "FINE"));
+        emf.createEntityManager().close();
+
+        String[] brands = {"Dior", "Chanel", "Guerlain", "Hermes", "Lancome", "Armani", "Prada", "Gucci"};
+        String[] genders = {"Homme", "Femme", "Mixte"};
+        String[] types = {"EDT", "EDP", "Parfum", "Cologne"};
+        try (Connection c = DriverManager.getConnection(TestDatabase.url(DB), "sa", "");
+             PreparedStatement insert = c.prepareStatement("INSERT INTO perfumes "
+                     + "(id, name, brand, gender, type, price, stock, available) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "Perfume " + i);
+                insert.setString(3, brands[i % brands.length]);
+                insert.setString(4, genders[i % genders.length]);
+                insert.setString(5, types[i % types.length]);
+                insert.setBigDecimal(6, i % 50 == 0 ? null : BigDecimal.valueOf(20 + (i * 37) % 400));
+                insert.setInt(7, i % 20);
+                insert.setBoolean(8, i % 10 != 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            try (Statement s = c.createStatement()) {
+                s.execute("ANALYZE");
+            }
+        }
+    }
+
+    @AfterAll
+    static void close() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void open() {
+        em = emf.createEntityManager();
+        service = TestDatabase.inject(new PerfumeService(), "em", em);
+        synchronized (SqlCapture.class) {
+            SqlCapture.statements.clear();
+        }
+    }
+
+    @AfterEach
+    void closeEntityManager() {
+        em.close();
+    }
+
+    @Test
+    void priceSortUsesPriceIndex() throws SQLException {
+        PerfumePage first = service.findPage(PerfumeSort.PRICE, null, 20, new PerfumeFilter());
+        assertPlansUse("idx_perfumes_price_id");
+
+        service.findPage(PerfumeSort.PRICE, first.nextCursor, 20, new PerfumeFilter());
+        assertPlansUse("idx_perfumes_price_id");
+    }
+
+    @Test
+    void nameSortUsesNameIndex() throws SQLException {
+        service.findPage(PerfumeSort.NAME, null, 20, new PerfumeFilter());
+        assertPlansUse("idx_perfumes_name_id");
+    }
+
+    @Test
+    void brandFilterUsesBrandPriceIndex() throws SQLException {
+        PerfumeFilter filter = new PerfumeFilter();
+        filter.brand = "Dior";
+        filter.minPrice = new BigDecimal("50");
+        service.findPage(PerfumeSort.PRICE, null, 20, filter);
+        assertPlansUse("idx_perfumes_brand_price");
+    }
+
+    @Test
+    void genderAndTypeFilterUsesGenderTypePriceIndex() throws SQLException {
+        PerfumeFilter filter = new PerfumeFilter();
+        filter.gender = "Femme";
+        filter.type = "EDP";
+        filter.maxPrice = new BigDecimal("300");
+        service.findPage(PerfumeSort.PRICE, null, 20, filter);
+        assertPlansUse("idx_perfumes_gender_type_price");
+    }
+
+    @Test
+    void availabilityFilterUsesAvailablePriceIndex() throws SQLException {
+        PerfumeFilter filter = new PerfumeFilter();
+        filter.available = Boolean.FALSE;
+        filter.minPrice = new BigDecimal("100");
+        service.findPage(PerfumeSort.PRICE, null, 20, filter);
+        assertPlansUse("idx_perfumes_available_price");
+    }
+
+    private static void assertPlansUse(String index) throws SQLException {
+        List<String> selects = new ArrayList<>();
+        synchronized (SqlCapture.class) {
+            for (String sql : SqlCapture.statements) {
+                if (sql.trim().toUpperCase(Locale.ROOT).startsWith("SELECT") && sql.toUpperCase(Locale.ROOT).contains("PERFUMES")) {
+                    selects.add(sql);
+                }
+            }
+            SqlCapture.statements.clear();
+        }
+        assertFalse(selects.isEmpty(), "no page query was captured");
+
+        try (Connection c = DriverManager.getConnection(TestDatabase.url(DB), "sa", "")) {
+            for (String sql : selects) {
+                try (PreparedStatement explain = c.prepareStatement("EXPLAIN " + sql);
+                     ResultSet rs = explain.executeQuery()) {
+                    rs.next();
+                    String plan = rs.getString(1);
+                    assertTrue(plan.toLowerCase(Locale.ROOT).contains(index),
+                            "expected " + index + " for\n" + sql + "\nplan:\n" + plan);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.parfumerie.service;
+
+import com.parfumerie.TestDatabase;
+import com.parfumerie.domain.Perfume;
+import com.parfumerie.domain.StockJournalEntry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many checkouts racing for one SKU through {@link PerfumeService#decrementStock}, each in its own
+ * transaction on H2: no unit may be sold twice and the stock never goes negative, including units
+ * the hot-stock ledger sold but has not flushed yet.
+ */
+class StockContentionTest {
+
+    private static final String DB = "stock_contention";
+    private static final int INITIAL = 200;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 400;
+
+    private static EntityManagerFactory emf;
+    private static SharedEntityCache sharedCache;
+
+    @BeforeAll
+    static void open() {
+        emf = TestDatabase.open(DB, Map.of("jakarta.persistence.jdbc.url", TestDatabase.url(DB) + ";LOCK_TIMEOUT=10000"));
+        sharedCache = TestDatabase.inject(new SharedEntityCache(), "emf", emf);
+    }
+
+    @AfterAll
+    static void close() {
+        emf.close();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Long id = createPerfume(INITIAL);
+        assertEquals(INITIAL, stockOf(id));
+        assertTrue(emf.getCache().contains(Perfume.class, id));
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger unitsSold = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                attempts.add(pool.submit(() -> {
+                    int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+                    start.await();
+                    EntityManager em = emf.createEntityManager();
+                    try {
+                        PerfumeService service = service(em);
+                        em.getTransaction().begin();
+                        if (service.decrementStock(id, quantity)) {
+                            em.getTransaction().commit();
+                            created.incrementAndGet();
+                            unitsSold.addAndGet(quantity);
+                        } else {
+                            em.getTransaction().rollback();
+                            refused.incrementAndGet();
+                        }
+                    } finally {
+                        em.close();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> attempt : attempts) {
+                attempt.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int remaining = remainingInDatabase(id);
+        assertTrue(remaining >= 0, "stock went negative: " + remaining);
+        assertEquals(INITIAL, unitsSold.get() + remaining, "units sold plus stock left must equal the initial stock");
+        assertEquals(ATTEMPTS, created.get() + refused.get());
+        assertTrue(refused.get() > 0, "demand should exceed supply");
+        assertTrue(remaining < 3, "orders were refused while " + remaining + " units were left");
+        assertEquals(remaining, stockOf(id), "shared cache still holds the pre-checkout row");
+    }
+
+    @Test
+    void coldCheckoutCountsUnflushedHotJournal() {
+        Long id = createPerfume(10);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(new StockJournalEntry(id, 8));
+            em.getTransaction().commit();
+
+            PerfumeService service = service(em);
+            em.getTransaction().begin();
+            assertFalse(service.decrementStock(id, 3), "sold units still in the journal were sold again");
+            assertTrue(service.decrementStock(id, 2));
+            em.getTransaction().commit();
+            assertEquals(0, service.findStock(id));
+        } finally {
+            em.close();
+        }
+    }
+
+    private static PerfumeService service(EntityManager em) {
+        PerfumeService service = TestDatabase.inject(new PerfumeService(), "em", em);
+        return TestDatabase.inject(service, "sharedEntityCache", sharedCache);
+    }
+
+    private static Long createPerfume(int stock) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Perfume perfume = new Perfume();
+            perfume.setName("Contended");
+            perfume.setStock(stock);
+            em.getTransaction().begin();
+            em.persist(perfume);
+            em.getTransaction().commit();
+            return perfume.getId();
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Through the entity, so a stale shared-cache entry would show. */
+    private static int stockOf(Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Perfume.class, id).getStock();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static int remainingInDatabase(Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return service(em).findStock(id);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.parfumerie.service;
+
+import com.parfumerie.TestDatabase;
+import com.parfumerie.domain.Role;
+import com.parfumerie.messaging.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * A password or email change revokes the tokens the user already holds, but not the ones issued after it.
+ */
+class TokenServiceTest {
+
+    private TokenService tokens;
+
+    @BeforeAll
+    static void configure() {
+        System.setProperty("parfumerie.auth.token.secret", "test-signing-secret");
+    }
+
+    @BeforeEach
+    void create() {
+        tokens = new TokenService();
+        TestDatabase.inject(tokens, "revocationList", new TokenRevocationList());
+        TestDatabase.inject(tokens, "invalidationBus", new CacheInvalidationBus());
+    }
+
+    @Test
+    void revokeAllRejectsEarlierTokensOfThatUserOnly() throws InterruptedException {
+        String before = tokens.issue(1L, "old@example.com", Role.CLIENT).token;
+        String otherUser = tokens.issue(2L, "other@example.com", Role.CLIENT).token;
+        assertEquals(1L, tokens.verify(before).userId);
+
+        tokens.revokeAll(1L);
+        Thread.sleep(2);
+        String after = tokens.issue(1L, "new@example.com", Role.CLIENT).token;
+
+        assertNull(tokens.verify(before));
+        assertNotNull(tokens.verify(otherUser));
+        assertEquals("new@example.com", tokens.verify(after).email);
+    }
+}
@@ -1,12 +1,70 @@
-// Auth workflow for login, signup, and session teardown.
+// Auth workflow for login, signup, token refresh, and session teardown.
 
 import { httpRequest, readErrorBody, parseJson } from "../../infrastructure/httpClient";
-import { encodeBasicAuth, setAuthValue, setStoredUser, clearSession } from "../../services/auth";
+import {
+  encodeBasicAuth,
+  getAuthHeaders,
+  getStoredUser,
+  hasAuth,
+  setAuthValue,
+  setStoredUser,
+  clearSession,
+} from "../../services/auth";
 import { API_BASE_URL } from "../../config/api";
 
 const LOGIN_URL = `${API_BASE_URL}/auth/login`;
+const REFRESH_URL = `${API_BASE_URL}/auth/refresh`;
+const LOGOUT_URL = `${API_BASE_URL}/auth/logout`;
 const SIGNUP_URL = `${API_BASE_URL}/users`;
 
+// Rotate the session token this long before it expires.
+const REFRESH_MARGIN_MS = 60 * 1000;
+
+let refreshTimer = null;
+
+function scheduleRefresh(expiresAt) {
+  if (refreshTimer) clearTimeout(refreshTimer);
+  refreshTimer = null;
+  if (!expiresAt) return;
+  const delay = Math.max(expiresAt - Date.now() - REFRESH_MARGIN_MS, 0);
+  refreshTimer = setTimeout(() => {
+    refreshSession().catch(() => null);
+  }, delay);
+}
+
+export async function refreshSession() {
+  const res = await httpRequest(REFRESH_URL, {
+    method: "POST",
+    headers: { ...getAuthHeaders() },
+  });
+
+  if (!res.ok) {
+    if (res.status === 401) {
+      scheduleRefresh(null);
+      clearSession();
+    }
+    const msg = await readErrorBody(res);
+    throw new Error(msg || `HTTP ${res.status}`);
+  }
+
+  const user = await parseJson(res);
+  setStoredUser(user);
+  setAuthValue(user.token);
+  scheduleRefresh(user.expiresAt);
+  return user;
+}
+
+// Picks up a stored token session on page load: drops it if expired, otherwise keeps it refreshed.
+export function resumeSession() {
+  const user = getStoredUser();
+  if (!hasAuth() || !user?.expiresAt) return;
+  if (user.expiresAt <= Date.now()) {
+    clearSession();
+    return;
+  }
+  scheduleRefresh(user.expiresAt);
+}
+
 export async function loginUser(email, password) {
   const res = await httpRequest(LOGIN_URL, {
     method: "POST",
@@ -21,7 +79,8 @@ export async function loginUser(email, password) {
 
   const user = await parseJson(res);
   setStoredUser(user);
-  setAuthValue(encodeBasicAuth(email, password));
+  setAuthValue(user.token || encodeBasicAuth(email, password));
+  scheduleRefresh(user.token ? user.expiresAt : null);
   return user;
 }
 
@@ -42,5 +101,9 @@ export async function signupUser(payload) {
 }
 
 export function logoutUser() {
+  scheduleRefresh(null);
+  if (hasAuth()) {
+    httpRequest(LOGOUT_URL, { method: "POST", headers: { ...getAuthHeaders() } }).catch(() => null);
+  }
   clearSession();
 }
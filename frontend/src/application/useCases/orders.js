@@ -1,17 +1,19 @@
-// Fetches orders for the current authenticated user.
+// Fetches the current user's order history, a page at a time, and single order details.
 
 import { getAuthHeaders, hasAuth } from "../../services/auth";
 import { httpRequest, readErrorBody, parseJson } from "../../infrastructure/httpClient";
 import { API_BASE_URL } from "../../config/api";
 
 const ORDERS_API = `${API_BASE_URL}/orders`;
+const USERS_API = `${API_BASE_URL}/users`;
+const PAGE_SIZE = 20;
 
-export async function fetchUserOrders() {
+async function getJson(url) {
   if (!hasAuth()) {
     throw new Error("Connecte-toi pour voir tes commandes.");
   }
 
-  const res = await httpRequest(ORDERS_API, {
+  const res = await httpRequest(url, {
     headers: { ...getAuthHeaders() },
   });
 
@@ -22,3 +24,18 @@ export async function fetchUserOrders() {
 
   return await parseJson(res);
 }
+
+// Returns { items, nextCursor }; pass nextCursor back as `before` for older orders.
+export async function fetchUserOrders(userId, before) {
+  const params = new URLSearchParams({ limit: String(PAGE_SIZE) });
+  if (before) params.set("before", before);
+  const page = await getJson(`${USERS_API}/${encodeURIComponent(userId)}/orders?${params}`);
+  return {
+    items: Array.isArray(page?.items) ? page.items : [],
+    nextCursor: page?.nextCursor ?? null,
+  };
+}
+
+export async function fetchOrder(orderId) {
+  return getJson(`${ORDERS_API}/${encodeURIComponent(orderId)}`);
+}
@@ -1,6 +1,7 @@
 // Profile update and password change workflows.
 
-import { encodeBasicAuth, getAuthHeaders, setAuthValue } from "../../services/auth";
+import { getAuthHeaders } from "../../services/auth";
+import { loginUser } from "./auth";
 import { httpRequest, readErrorBody, parseJson } from "../../infrastructure/httpClient";
 import { API_BASE_URL } from "../../config/api";
 
@@ -54,9 +55,6 @@ export async function changeMyPassword({ userId, email, oldPassword, newPassword
 
   const updated = await parseJson(res);
 
-  
-  const authValue = encodeBasicAuth(updated.email || email, newPassword);
-  setAuthValue(authValue);
-
-  return updated;
+  // The server revokes every token issued before the change, so sign in again with the new password.
+  return loginUser(updated.email || email, newPassword);
 }
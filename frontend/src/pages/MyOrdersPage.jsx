@@ -2,7 +2,7 @@
 
 import { useEffect, useMemo, useState } from "react";
 import { Link } from "react-router-dom";
-import { fetchUserOrders } from "../application/useCases/orders";
+import { fetchOrder, fetchUserOrders } from "../application/useCases/orders";
 import { getCurrentUser } from "../application/useCases/session";
 
 const formatEur = (value) => {
@@ -13,16 +13,19 @@ const formatEur = (value) => {
 export default function MyOrdersPage() {
   const user = useMemo(() => getCurrentUser(), []);
   const [orders, setOrders] = useState([]);
-  const [selected, setSelected] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [selectedId, setSelectedId] = useState(null);
+  const [details, setDetails] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
 
-  async function refresh() {
+  async function load(before) {
     setLoading(true);
     setError(null);
     try {
-      const allOrders = await fetchUserOrders();
-      setOrders(Array.isArray(allOrders) ? allOrders : []);
+      const page = await fetchUserOrders(user.id, before);
+      setOrders((prev) => (before ? [...prev, ...page.items] : page.items));
+      setNextCursor(page.nextCursor);
     } catch (err) {
       setError(err?.message || "Erreur lors du chargement.");
     } finally {
@@ -30,42 +33,46 @@ export default function MyOrdersPage() {
     }
   }
 
+  function refresh() {
+    return load(null);
+  }
+
   useEffect(() => {
     if (!user) return;
     refresh();
     
   }, [user]);
 
-  const filtered = useMemo(() => {
-    if (!user) return [];
-    const userId = user.id;
-    const email = String(user.email || "").toLowerCase();
-
-    return orders
-      .filter((o) => {
-        const orderEmail = String(o.user?.email ?? o.userEmail ?? "").toLowerCase();
-        const orderUserId = o.user?.id ?? o.userId;
-        return (userId && orderUserId === userId) || (email && orderEmail === email);
-      })
-      .sort((a, b) => {
-        const da = new Date(a.orderDate || a.createdAt || 0).getTime();
-        const db = new Date(b.orderDate || b.createdAt || 0).getTime();
-        return db - da;
-      });
-  }, [orders, user]);
-
   useEffect(() => {
-    if (!filtered.length) {
-      setSelected(null);
+    if (!orders.length) {
+      setSelectedId(null);
       return;
     }
-    if (!selected) {
-      setSelected(filtered[0]);
+    if (!orders.some((o) => o.id === selectedId)) {
+      setSelectedId(orders[0].id);
+    }
+  }, [orders, selectedId]);
+
+  useEffect(() => {
+    if (selectedId == null) {
+      setDetails(null);
       return;
     }
-    const stillThere = filtered.find((o) => o.id === selected.id);
-    setSelected(stillThere || filtered[0]);
-  }, [filtered, selected]);
+    let cancelled = false;
+    fetchOrder(selectedId)
+      .then((order) => {
+        if (!cancelled) setDetails(order);
+      })
+      .catch(() => {
+        if (!cancelled) setDetails(null);
+      });
+    return () => {
+      cancelled = true;
+    };
+  }, [selectedId]);
+
+  const summary = orders.find((o) => o.id === selectedId) || null;
+  const selected = summary ? { ...summary, ...(details?.id === summary.id ? details : {}) } : null;
 
   if (!user) {
     return (
@@ -103,20 +110,20 @@ export default function MyOrdersPage() {
         <div style={styles.layout}>
           <section style={styles.panel}>
             {loading && <div style={styles.empty}>Chargement...</div>}
-            {!loading && filtered.length === 0 && (
+            {!loading && orders.length === 0 && (
               <div style={styles.empty}>Aucune commande pour le moment.</div>
             )}
 
             <div style={styles.list}>
-              {filtered.map((o) => {
-                const isActive = selected?.id === o.id;
+              {orders.map((o) => {
+                const isActive = selectedId === o.id;
                 const total = o.totalPrice ?? o.total;
                 const date = o.orderDate ?? o.createdAt ?? "N/A";
                 return (
                   <button
                     key={o.id}
                     type="button"
-                    onClick={() => setSelected(o)}
+                    onClick={() => setSelectedId(o.id)}
                     style={{ ...styles.row, ...(isActive ? styles.rowActive : {}) }}
                   >
                     <div>
@@ -130,6 +137,12 @@ export default function MyOrdersPage() {
                 );
               })}
             </div>
+
+            {nextCursor && (
+              <button type="button" onClick={() => load(nextCursor)} disabled={loading} style={styles.ghostBtn}>
+                {loading ? "Chargement..." : "Commandes plus anciennes"}
+              </button>
+            )}
           </section>
 
           <section style={styles.panel}>
@@ -158,7 +171,7 @@ export default function MyOrdersPage() {
                   <div style={styles.kv}>
                     <div style={styles.k}>Articles</div>
                     <div style={styles.v}>
-                      {Array.isArray(selected.items) ? selected.items.length : 0}
+                      {Array.isArray(selected.items) ? selected.items.length : selected.itemCount ?? 0}
                     </div>
                   </div>
                 </div>